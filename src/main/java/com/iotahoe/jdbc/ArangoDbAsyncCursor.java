@@ -0,0 +1,205 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursor;
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.entity.CursorStats;
+import com.arangodb.entity.CursorWarning;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Blocking ArangoCursor view of an asynchronous cursor.
+ * Without prefetch, batches are requested from the server only when the rows already received
+ * are exhausted. With prefetch, up to prefetchBatches following batches are requested in the
+ * background while the caller reads the current one, each as soon as the one before it has
+ * arrived, so that batch boundaries do not cost a round trip. Every wait goes through the
+ * owning statement so that cancel() and the query timeout apply.
+ */
+class ArangoDbAsyncCursor<T> implements ArangoCursor<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbAsyncCursor.class);
+
+    private final ArangoDbStatement statement;
+    private final ArangoDbStatement.RunningQuery query;
+    private final Class<T> type;
+    private final int prefetchBatches;
+    private ArangoCursorAsync<T> batch;
+    private Iterator<T> rows;
+    // Following batches requested ahead, in order; past the last batch they resolve to null
+    private final ArrayDeque<CompletableFuture<ArangoCursorAsync<T>>> ahead = new ArrayDeque<>();
+    private boolean closed = false;
+
+    ArangoDbAsyncCursor(ArangoDbStatement statement, ArangoDbStatement.RunningQuery query, ArangoCursorAsync<T> batch,
+            Class<T> type, int prefetchBatches) {
+        this.statement = statement;
+        this.query = query;
+        this.batch = batch;
+        this.type = type;
+        this.prefetchBatches = prefetchBatches;
+        this.rows = batch.getResult().iterator();
+        fetchAhead();
+    }
+
+    private void fetchAhead() {
+        while (ahead.size() < prefetchBatches) {
+            CompletableFuture<ArangoCursorAsync<T>> last = ahead.peekLast();
+            if (last == null) {
+                if (!hasMore(batch)) {
+                    return;
+                }
+                ahead.add(batch.nextBatch());
+            } else {
+                if (last.isDone() && !last.isCompletedExceptionally() && !hasMore(last.join())) {
+                    return;
+                }
+                // Requests on a cursor must not overlap, chain each one on the previous one
+                ahead.add(last.thenCompose(ArangoDbAsyncCursor::requestAfter));
+            }
+        }
+    }
+
+    private static <T> CompletableFuture<ArangoCursorAsync<T>> requestAfter(ArangoCursorAsync<T> previous) {
+        return hasMore(previous) ? previous.nextBatch() : CompletableFuture.completedFuture(null);
+    }
+
+    private static boolean hasMore(ArangoCursorAsync<?> batch) {
+        return batch != null && Boolean.TRUE.equals(batch.hasMore());
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext() || (!closed && hasMore(batch));
+    }
+
+    @Override
+    public T next() {
+        if (!rows.hasNext()) {
+            if (closed || !hasMore(batch)) {
+                throw new NoSuchElementException();
+            }
+            CompletableFuture<ArangoCursorAsync<T>> request = ahead.isEmpty() ? batch.nextBatch() : ahead.poll();
+            try {
+                batch = statement.awaitQuery(query, request);
+            } catch (SQLException e) {
+                statement.queryFinished(query);
+                throw new ArangoDbCursorException(e);
+            }
+            if (!hasMore(batch)) {
+                statement.queryFinished(query);
+            }
+            rows = batch.getResult().iterator();
+            fetchAhead();
+        }
+        return rows.next();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        statement.queryFinished(query);
+        if (ahead.isEmpty()) {
+            deleteCursor(batch);
+            return;
+        }
+        // Delete the cursor through the last batch received once the batches requested ahead are in
+        List<CompletableFuture<ArangoCursorAsync<T>>> requests = new ArrayList<>(ahead);
+        ArangoCursorAsync<T> current = batch;
+        ahead.clear();
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).whenComplete((result, e) -> {
+            ArangoCursorAsync<T> latest = current;
+            for (CompletableFuture<ArangoCursorAsync<T>> request : requests) {
+                if (!request.isCompletedExceptionally() && request.join() != null) {
+                    latest = request.join();
+                }
+            }
+            deleteCursor(latest);
+        });
+    }
+
+    /**
+     * Deletes the server cursor of a batch unless it was the last one.
+     */
+    static void deleteCursor(ArangoCursorAsync<?> batch) {
+        // The server drops exhausted cursors by itself
+        if (batch.getId() != null && Boolean.TRUE.equals(batch.hasMore())) {
+            batch.close().whenComplete((result, e) -> {
+                if (e != null) {
+                    LOGGER.error("Failed to delete cursor {}", batch.getId(), e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public String getId() {
+        return batch.getId();
+    }
+
+    @Override
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public Integer getCount() {
+        return batch.getCount();
+    }
+
+    @Override
+    public CursorStats getStats() {
+        return batch.getExtra() != null ? batch.getExtra().getStats() : null;
+    }
+
+    @Override
+    public Collection<CursorWarning> getWarnings() {
+        return batch.getExtra() != null ? batch.getExtra().getWarnings() : null;
+    }
+
+    @Override
+    public boolean isCached() {
+        return Boolean.TRUE.equals(batch.isCached());
+    }
+
+    @Override
+    public boolean isPotentialDirtyRead() {
+        return Boolean.TRUE.equals(batch.isPotentialDirtyRead());
+    }
+
+    @Override
+    public String getNextBatchId() {
+        return batch.getNextBatchId();
+    }
+
+    @Override
+    public ArangoDbAsyncCursor<T> iterator() {
+        return this;
+    }
+
+    /**
+     * Carries a failed batch fetch through the unchecked Iterator contract.
+     */
+    static class ArangoDbCursorException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ArangoDbCursorException(SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
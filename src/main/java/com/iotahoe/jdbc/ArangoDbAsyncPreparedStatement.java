@@ -0,0 +1,33 @@
+package com.iotahoe.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking execution of prepared statements, available through
+ * {@code preparedStatement.unwrap(ArangoDbAsyncPreparedStatement.class)}.
+ * The parameter values are captured when the method is called, so they may be changed as soon
+ * as it returns.
+ * @see ArangoDbAsyncStatement
+ */
+public interface ArangoDbAsyncPreparedStatement extends ArangoDbAsyncStatement {
+
+    /**
+     * Asynchronous counterpart of {@link java.sql.PreparedStatement#executeQuery()}.
+     */
+    CompletableFuture<ResultSet> executeQueryAsync();
+
+    /**
+     * Asynchronous counterpart of {@link java.sql.PreparedStatement#executeUpdate()}.
+     */
+    CompletableFuture<Integer> executeUpdateAsync();
+
+    /**
+     * Returns a publisher of the rows of the prepared query.
+     * @see ArangoDbAsyncStatement#publishQuery(String)
+     */
+    Flow.Publisher<Map<String, Object>> publishQuery() throws SQLException;
+}
@@ -0,0 +1,40 @@
+package com.iotahoe.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking query execution, available through {@code statement.unwrap(ArangoDbAsyncStatement.class)}.
+ * The returned futures complete once the first batch of the result has arrived, without holding
+ * a thread while the server works. Failures complete them with an SQLException.
+ * Callbacks attached to the futures run on the common fork-join pool, never on the driver's I/O
+ * threads, so they may read the result set. The result sets request each following batch from
+ * the server as soon as the previous one has arrived.
+ * Like the blocking methods, a statement runs one query at a time: use one statement per
+ * concurrent query. cancel() and the query timeout apply as for the blocking methods.
+ */
+public interface ArangoDbAsyncStatement {
+
+    /**
+     * Asynchronous counterpart of {@link java.sql.Statement#executeQuery(String)}.
+     */
+    CompletableFuture<ResultSet> executeQueryAsync(String sql);
+
+    /**
+     * Asynchronous counterpart of {@link java.sql.Statement#executeUpdate(String)}.
+     */
+    CompletableFuture<Integer> executeUpdateAsync(String sql);
+
+    /**
+     * Returns a publisher of the rows of a query, for reactive consumers. The query is sent when
+     * the subscriber first requests rows, and the next batch is requested from the server only
+     * once the demand reaches beyond the rows already received, so a slow subscriber holds at
+     * most two batches in memory. Rows are the document attributes, as read by the result sets.
+     * The publisher accepts a single subscriber; the statement counts as running the query until
+     * the subscription completes, fails or is cancelled. maxRows and fetchSize apply.
+     */
+    Flow.Publisher<Map<String, Object>> publishQuery(String sql) throws SQLException;
+}
@@ -0,0 +1,175 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.entity.CursorEntity;
+import com.arangodb.internal.serde.InternalSerde;
+import com.arangodb.util.RawBytes;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes cursor batches into documents on a pool of worker threads.
+ * Queries read through a decoder receive their rows undecoded from the server; each batch is split
+ * into consecutive slices that are decoded in parallel and joined back in order, so that a
+ * single consumer is fed by several cores. JSON rows are parsed by {@link ArangoDbRowDecoder}
+ * into maps, which result sets move into their slot arrays, or into documents for the consumers
+ * that read BaseDocument. Together with prefetchBatches, batches are decoded in
+ * the background while the consumer reads the previous one. Idle workers exit after a minute.
+ */
+final class ArangoDbBatchDecoder implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbBatchDecoder.class);
+    // Fewer rows are not worth handing to another thread
+    private static final int MIN_SLICE_ROWS = 64;
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final InternalSerde serde;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+
+    ArangoDbBatchDecoder(InternalSerde serde, int threads) {
+        LOGGER.debug("ArangoDbBatchDecoder(threads={})", threads);
+        this.serde = serde;
+        this.threads = threads;
+        int pool = POOL_COUNT.incrementAndGet();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "arangodb-jdbc-decoder-" + pool + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the worker threads once the batches already submitted are decoded.
+     */
+    @Override
+    public void close() {
+        LOGGER.debug("close()");
+        executor.shutdown();
+    }
+
+    /**
+     * Decodes a batch of undecoded rows into maps or BaseDocuments; the returned cursor fetches
+     * and decodes the following batches the same way.
+     */
+    <T> CompletableFuture<ArangoCursorAsync<T>> decode(ArangoCursorAsync<RawBytes> batch, Class<T> type) {
+        List<RawBytes> rows = batch.getResult();
+        if (rows == null || rows.isEmpty()) {
+            return CompletableFuture.completedFuture(new DecodedBatch<>(batch, type, Collections.emptyList()));
+        }
+        int slices = Math.max(1, Math.min(threads, rows.size() / MIN_SLICE_ROWS));
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>(slices);
+        for (int i = 0; i < slices; i++) {
+            List<RawBytes> slice = rows.subList(i * rows.size() / slices, (i + 1) * rows.size() / slices);
+            parts.add(CompletableFuture.supplyAsync(() -> decodeRows(slice, type), executor));
+        }
+        CompletableFuture<ArangoCursorAsync<T>> decoded = CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<T> documents = new ArrayList<>(rows.size());
+            for (CompletableFuture<List<T>> part : parts) {
+                documents.addAll(part.join());
+            }
+            return new DecodedBatch<>(batch, type, documents);
+        });
+        // Nobody will read the rest of a cursor whose batch could not be decoded
+        decoded.exceptionally(e -> {
+            if (Boolean.TRUE.equals(batch.hasMore())) {
+                batch.close();
+            }
+            return null;
+        });
+        return decoded;
+    }
+
+    private <T> List<T> decodeRows(List<RawBytes> rows, Class<T> type) {
+        List<T> documents = new ArrayList<>(rows.size());
+        try {
+            for (RawBytes row : rows) {
+                Map<String, Object> document = ArangoDbRowDecoder.decodeDocument(row.get(), serde);
+                documents.add(type.cast(type == BaseDocument.class ? new BaseDocument(document) : document));
+            }
+        } catch (SQLException e) {
+            throw new CompletionException(e);
+        }
+        return documents;
+    }
+
+    /**
+     * A batch of decoded rows over the server cursor of the undecoded batch.
+     */
+    private final class DecodedBatch<T> implements ArangoCursorAsync<T> {
+        private final ArangoCursorAsync<RawBytes> batch;
+        private final Class<T> type;
+        private final List<T> rows;
+
+        DecodedBatch(ArangoCursorAsync<RawBytes> batch, Class<T> type, List<T> rows) {
+            this.batch = batch;
+            this.type = type;
+            this.rows = rows;
+        }
+
+        @Override
+        public CompletableFuture<ArangoCursorAsync<T>> nextBatch() {
+            return batch.nextBatch().thenCompose(next -> decode(next, type));
+        }
+
+        @Override
+        public CompletableFuture<Void> close() {
+            return batch.close();
+        }
+
+        @Override
+        public String getId() {
+            return batch.getId();
+        }
+
+        @Override
+        public Integer getCount() {
+            return batch.getCount();
+        }
+
+        @Override
+        public Boolean isCached() {
+            return batch.isCached();
+        }
+
+        @Override
+        public Boolean hasMore() {
+            return batch.hasMore();
+        }
+
+        @Override
+        public List<T> getResult() {
+            return rows;
+        }
+
+        @Override
+        public Boolean isPotentialDirtyRead() {
+            return batch.isPotentialDirtyRead();
+        }
+
+        @Override
+        public String getNextBatchId() {
+            return batch.getNextBatchId();
+        }
+
+        @Override
+        public CursorEntity.Extras getExtra() {
+            return batch.getExtra();
+        }
+    }
+}
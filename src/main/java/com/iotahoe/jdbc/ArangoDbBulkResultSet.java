@@ -0,0 +1,21 @@
+package com.iotahoe.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Bulk row reading, available through {@code resultSet.unwrap(ArangoDbBulkResultSet.class)}.
+ * Copies many rows at once into arrays provided by the caller, for loops that would otherwise
+ * call next() and one getter per value. Values are the objects getObject() returns.
+ * For columns of primitive values, see {@link ArangoDbColumnarResultSet}.
+ */
+public interface ArangoDbBulkResultSet {
+
+    /**
+     * Copies up to maxRows following rows into dest, row i into dest[i] in column order, and
+     * returns the number of rows copied, 0 once no rows are left. At most dest.length rows are
+     * copied. Arrays of dest that are null or shorter than the number of columns are replaced by
+     * new arrays; the entries of longer arrays past the last column are left untouched.
+     * The result set is left on the last row copied, as if next() had been called for each row.
+     */
+    int fetchInto(int maxRows, Object[][] dest) throws SQLException;
+}
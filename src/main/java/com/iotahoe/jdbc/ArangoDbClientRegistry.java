@@ -0,0 +1,232 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoDB;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Driver-wide registry of shared ArangoDB clients.
+ * Connections with the same endpoint, credentials and client settings borrow the same
+ * ArangoDB instance (and therefore the same HTTP connection pool and event loop) instead
+ * of building and shutting down their own. Clients are reference counted and shut down
+ * once they have been unused for the configured idle timeout.
+ */
+final class ArangoDbClientRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbClientRegistry.class);
+
+    // Properties that are applied to ArangoDB.Builder and therefore distinguish clients
+    private static final String[] CLIENT_PROPERTIES = {
+        ArangoDbConstants.PROPERTY_USER,
+        ArangoDbConstants.PROPERTY_PASSWORD,
+        ArangoDbConstants.PROPERTY_JWT,
+        ArangoDbConstants.PROPERTY_TIMEOUT,
+        ArangoDbConstants.PROPERTY_MAX_CONNECTIONS,
+        ArangoDbConstants.PROPERTY_CONNECTION_TTL,
+        ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL,
+        ArangoDbConstants.PROPERTY_USE_SSL,
+        ArangoDbConstants.PROPERTY_VERIFY_HOST,
+        ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST,
+        ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL,
+        ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES,
+        ArangoDbConstants.PROPERTY_CHUNK_SIZE
+    };
+
+    private static final Map<ClientKey, SharedClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "arangodb-jdbc-client-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ArangoDbClientRegistry() {
+        // private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns the shared client for the given key, creating it with the factory if needed.
+     * Every call must be paired with a call to {@link #release(ClientKey, long)}.
+     */
+    static ArangoDB acquire(ClientKey key, Supplier<ArangoDB> factory) {
+        SharedClient client = CLIENTS.compute(key, (k, existing) -> {
+            SharedClient shared = existing;
+            if (shared == null) {
+                LOGGER.debug("acquire(key={}) - creating shared client", k);
+                shared = new SharedClient(factory.get());
+            }
+            shared.references++;
+            if (shared.eviction != null) {
+                shared.eviction.cancel(false);
+                shared.eviction = null;
+            }
+            return shared;
+        });
+        return client.arangoDB;
+    }
+
+    /**
+     * Releases a client obtained from {@link #acquire(ClientKey, Supplier)}.
+     * When the last reference is released the client is shut down after idleTimeoutMillis,
+     * or immediately if idleTimeoutMillis is not positive.
+     */
+    static void release(ClientKey key, long idleTimeoutMillis) {
+        SharedClient[] shutdown = new SharedClient[1];
+        CLIENTS.computeIfPresent(key, (k, shared) -> {
+            if (--shared.references > 0) {
+                return shared;
+            }
+            if (idleTimeoutMillis <= 0) {
+                shutdown[0] = shared;
+                return null;
+            }
+            LOGGER.debug("release(key={}) - client idle, evicting in {} ms", k, idleTimeoutMillis);
+            shared.eviction = EVICTOR.schedule(() -> evict(k, shared), idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            return shared;
+        });
+        if (shutdown[0] != null) {
+            shutdownClient(key, shutdown[0]);
+        }
+    }
+
+    /**
+     * Returns the resource of the given type attached to the shared client (such as its result
+     * cache), creating it with the factory on first use. All connections borrowing the client
+     * share its resources; without a registered client a new resource is returned. Resources
+     * that are AutoCloseable are closed when the client is shut down.
+     */
+    static <T> T getClientResource(ClientKey key, Class<T> type, Supplier<T> factory) {
+        return getClientResource(key, type, null, factory);
+    }
+
+    /**
+     * Returns the resource of the given type and settings attached to the shared client, creating
+     * it with the factory on first use. Connections asking for different settings (compared with
+     * equals) get different resources, so the settings of the first connection do not win.
+     */
+    static <T> T getClientResource(ClientKey key, Class<T> type, Object settings, Supplier<T> factory) {
+        SharedClient shared = CLIENTS.get(key);
+        if (shared == null) {
+            return factory.get();
+        }
+        return type.cast(shared.resources.computeIfAbsent(Arrays.asList(type, settings), t -> factory.get()));
+    }
+
+    /**
+     * Returns the number of clients currently held by the registry, including idle ones.
+     */
+    static int getClientCount() {
+        return CLIENTS.size();
+    }
+
+    private static void evict(ClientKey key, SharedClient candidate) {
+        SharedClient[] shutdown = new SharedClient[1];
+        CLIENTS.computeIfPresent(key, (k, shared) -> {
+            if (shared != candidate || shared.references > 0) {
+                return shared;
+            }
+            shutdown[0] = shared;
+            return null;
+        });
+        if (shutdown[0] != null) {
+            shutdownClient(key, shutdown[0]);
+        }
+    }
+
+    private static void shutdownClient(ClientKey key, SharedClient shared) {
+        LOGGER.debug("shutdownClient(key={})", key);
+        try {
+            shared.arangoDB.shutdown();
+        } catch (Exception e) {
+            LOGGER.error("Failed to shut down ArangoDB client for {}", key, e);
+        }
+        for (Object resource : shared.resources.values()) {
+            if (resource instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) resource).close();
+                } catch (Exception e) {
+                    LOGGER.error("Failed to close {} of ArangoDB client for {}", resource.getClass().getSimpleName(), key, e);
+                }
+            }
+        }
+        shared.resources.clear();
+    }
+
+    private static final class SharedClient {
+        private final ArangoDB arangoDB;
+        // Guarded by the map entry: only mutated inside compute/computeIfPresent
+        private int references;
+        private ScheduledFuture<?> eviction;
+        // Per-client resources by type and settings, created on first use
+        private final Map<List<Object>, Object> resources = new ConcurrentHashMap<>();
+
+        private SharedClient(ArangoDB arangoDB) {
+            this.arangoDB = arangoDB;
+        }
+    }
+
+    /**
+     * Identifies a client by endpoint and every property that is applied to the ArangoDB builder.
+     */
+    static final class ClientKey {
+        private final String host;
+        private final int port;
+        private final Map<String, String> settings;
+
+        private ClientKey(String host, int port, Map<String, String> settings) {
+            this.host = host;
+            this.port = port;
+            this.settings = settings;
+        }
+
+        static ClientKey of(String host, int port, Properties info) {
+            Map<String, String> settings = new TreeMap<>();
+            for (String property : CLIENT_PROPERTIES) {
+                String value = info.getProperty(property);
+                if (value != null) {
+                    settings.put(property, value);
+                }
+            }
+            return new ClientKey(host, port, Collections.unmodifiableMap(settings));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            ClientKey other = (ClientKey) o;
+            return port == other.port && host.equals(other.host) && settings.equals(other.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, settings);
+        }
+
+        @Override
+        public String toString() {
+            Properties redacted = new Properties();
+            redacted.putAll(settings);
+            return host + ":" + port + " " + ArangoDbJdbcUtils.redactProperties(redacted);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursor;
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.ArangoDatabase;
+import com.arangodb.Request;
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.entity.CursorStats;
+import com.arangodb.entity.CursorWarning;
+import com.arangodb.entity.ServerRole;
+import com.arangodb.model.AqlQueryOptions;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Full scan of a collection through several concurrent cursors, read as a single cursor.
+ * The collection is split into partitions: the shards of a cluster collection for unordered
+ * scans, otherwise ranges of _key of similar size. Every partition runs as a streaming query
+ * and keeps one batch in flight while the caller reads. An ordered scan returns the partitions
+ * one after the other in _key order; an unordered scan returns batches in the order they arrive,
+ * taking turns between partitions that have one ready.
+ */
+final class ArangoDbCollectionScan implements ArangoCursor<BaseDocument> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbCollectionScan.class);
+    // Smaller ranges are not worth a cursor of their own
+    private static final long MIN_RANGE_DOCUMENTS = 10000;
+
+    private final ArangoDbStatement statement;
+    // Registered with the statement, holds the query of every partition for cancel() and the timeout
+    private final ArangoDbStatement.RunningQuery query;
+    private final boolean ordered;
+    private final List<Partition> partitions = new ArrayList<>();
+    private Partition current;
+    // Next partition an unordered scan looks at first
+    private int turn = 0;
+    private SQLException failure;
+    private boolean closed = false;
+
+    private ArangoDbCollectionScan(ArangoDbStatement statement, ArangoDbStatement.RunningQuery query, boolean ordered) {
+        this.statement = statement;
+        this.query = query;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Splits the collection into at most parallelism partitions and starts their queries.
+     */
+    static ArangoDbCollectionScan open(ArangoDbStatement statement, ArangoDbStatement.RunningQuery query, String collection,
+            int parallelism, boolean ordered) {
+        LOGGER.debug("open(collection={}, parallelism={}, ordered={})", new Object[]{collection, parallelism, ordered});
+        ArangoDbConnection connection = statement.connection;
+        ArangoDbCollectionScan scan = new ArangoDbCollectionScan(statement, query, ordered);
+        try {
+            if (!ordered && parallelism > 1 && connection.getArangoDB().getRole() == ServerRole.COORDINATOR) {
+                List<String> shards = getShards(connection, collection);
+                int groups = Math.max(1, Math.min(parallelism, shards.size()));
+                for (int i = 0; i < groups; i++) {
+                    List<String> group = new ArrayList<>();
+                    for (int shard = i; shard < shards.size(); shard += groups) {
+                        group.add(shards.get(shard));
+                    }
+                    AqlQueryOptions options = statement.createQueryOptions().stream(true);
+                    if (!group.isEmpty()) {
+                        options.shardIds(group.toArray(new String[0]));
+                    }
+                    scan.start("FOR d IN @@collection RETURN d", Collections.singletonMap("@collection", collection), options);
+                }
+            } else {
+                List<String> bounds = getKeyBounds(connection.getDatabase(), collection, parallelism);
+                for (int i = 0; i <= bounds.size(); i++) {
+                    String from = i > 0 ? bounds.get(i - 1) : null;
+                    String to = i < bounds.size() ? bounds.get(i) : null;
+                    scan.startRange(collection, from, to);
+                }
+            }
+        } catch (RuntimeException e) {
+            scan.close();
+            throw e;
+        }
+        LOGGER.debug("open(collection={}) - {} partitions", collection, scan.partitions.size());
+        return scan;
+    }
+
+    private void startRange(String collection, String from, String to) {
+        StringBuilder aql = new StringBuilder("FOR d IN @@collection");
+        Map<String, Object> bindVars = new HashMap<>();
+        bindVars.put("@collection", collection);
+        if (from != null) {
+            aql.append(" FILTER d._key >= @from");
+            bindVars.put("from", from);
+        }
+        if (to != null) {
+            aql.append(" FILTER d._key < @to");
+            bindVars.put("to", to);
+        }
+        if (ordered) {
+            aql.append(" SORT d._key");
+        }
+        aql.append(" RETURN d");
+        start(aql.toString(), bindVars, statement.createQueryOptions().stream(true));
+    }
+
+    private void start(String aql, Map<String, Object> bindVars, AqlQueryOptions options) {
+        Partition partition = new Partition(new ArangoDbStatement.RunningQuery(aql, bindVars));
+        query.partitions.add(partition.query);
+        partition.pending = statement.sendQuery(aql, bindVars, BaseDocument.class, options);
+        partitions.add(partition);
+        // Once the cursor id is known cancel() deletes the cursor rather than looking for the query
+        partition.pending.whenComplete((batch, e) -> {
+            if (batch != null && batch.getId() != null && Boolean.TRUE.equals(batch.hasMore())) {
+                partition.query.cursor = batch;
+            } else {
+                query.partitions.remove(partition.query);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> getShards(ArangoDbConnection connection, String collection) {
+        Request<Void> request = Request.<Void>builder()
+                .db(connection.getDatabase().name())
+                .method(Request.Method.GET)
+                .path("/_api/collection/" + URLEncoder.encode(collection, StandardCharsets.UTF_8).replace("+", "%20") + "/shards")
+                .build();
+        Map<String, Object> body = connection.getArangoDB().execute(request, Map.class).getBody();
+        Object shards = body != null ? body.get("shards") : null;
+        return shards instanceof List ? (List<String>) shards : Collections.emptyList();
+    }
+
+    /**
+     * Returns the keys splitting the collection into ranges of about the same number of
+     * documents, read from the primary index.
+     */
+    private static List<String> getKeyBounds(ArangoDatabase database, String collection, int parallelism) {
+        Long count = database.collection(collection).count().getCount();
+        long documents = count != null ? count : 0;
+        int ranges = (int) Math.max(1, Math.min(parallelism, documents / MIN_RANGE_DOCUMENTS));
+        List<String> bounds = new ArrayList<>(ranges - 1);
+        for (int i = 1; i < ranges; i++) {
+            Map<String, Object> bindVars = new HashMap<>();
+            bindVars.put("@collection", collection);
+            bindVars.put("offset", documents * i / ranges);
+            try (ArangoCursor<String> cursor = database.query("FOR d IN @@collection SORT d._key LIMIT @offset, 1 RETURN d._key", String.class, bindVars)) {
+                if (cursor.hasNext()) {
+                    String key = cursor.next();
+                    if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(key)) {
+                        bounds.add(key);
+                    }
+                }
+            } catch (IOException e) {
+                // Nothing to release, the cursor was read to the end
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Makes the current partition one with unread rows, waiting for a batch if needed.
+     * Returns false once all partitions are exhausted.
+     */
+    private boolean advance() throws SQLException {
+        while (current == null || !current.rows.hasNext()) {
+            current = ordered ? nextInOrder() : nextReady();
+            if (current == null) {
+                statement.queryFinished(query);
+                return false;
+            }
+            current.accept(statement.awaitQuery(query, current.pending));
+            if (current.pending == null) {
+                query.partitions.remove(current.query);
+            }
+        }
+        return true;
+    }
+
+    private Partition nextInOrder() {
+        for (Partition partition : partitions) {
+            if (partition.pending != null) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    private Partition nextReady() throws SQLException {
+        List<CompletableFuture<?>> waiting = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            int index = (turn + i) % partitions.size();
+            Partition partition = partitions.get(index);
+            if (partition.pending != null) {
+                if (partition.pending.isDone()) {
+                    turn = (index + 1) % partitions.size();
+                    return partition;
+                }
+                waiting.add(partition.pending);
+            }
+        }
+        if (waiting.isEmpty()) {
+            return null;
+        }
+        statement.awaitQuery(query, CompletableFuture.anyOf(waiting.toArray(new CompletableFuture<?>[0])));
+        return nextReady();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (failure != null) {
+            return true;
+        }
+        try {
+            return advance();
+        } catch (SQLException e) {
+            // Reported by next()
+            failure = e;
+            return true;
+        }
+    }
+
+    @Override
+    public BaseDocument next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (failure != null) {
+            throw new ArangoDbAsyncCursor.ArangoDbCursorException(failure);
+        }
+        return current.rows.next();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        statement.queryFinished(query);
+        for (Partition partition : partitions) {
+            partition.close();
+        }
+    }
+
+    @Override
+    public String getId() {
+        return null;
+    }
+
+    @Override
+    public Class<BaseDocument> getType() {
+        return BaseDocument.class;
+    }
+
+    @Override
+    public Integer getCount() {
+        return null;
+    }
+
+    @Override
+    public CursorStats getStats() {
+        return null;
+    }
+
+    @Override
+    public Collection<CursorWarning> getWarnings() {
+        return null;
+    }
+
+    @Override
+    public boolean isCached() {
+        return false;
+    }
+
+    @Override
+    public boolean isPotentialDirtyRead() {
+        return false;
+    }
+
+    @Override
+    public String getNextBatchId() {
+        return null;
+    }
+
+    @Override
+    public ArangoDbCollectionScan iterator() {
+        return this;
+    }
+
+    /**
+     * One cursor of the scan. Only the current partition of the scan has unread rows.
+     */
+    private static final class Partition {
+        private final ArangoDbStatement.RunningQuery query;
+        private ArangoCursorAsync<BaseDocument> batch;
+        private Iterator<BaseDocument> rows = Collections.emptyIterator();
+        // Next batch, requested as soon as the previous one arrived; null once the last one is in
+        private CompletableFuture<ArangoCursorAsync<BaseDocument>> pending;
+
+        Partition(ArangoDbStatement.RunningQuery query) {
+            this.query = query;
+        }
+
+        void accept(ArangoCursorAsync<BaseDocument> next) {
+            batch = next;
+            rows = next.getResult().iterator();
+            pending = Boolean.TRUE.equals(next.hasMore()) ? next.nextBatch() : null;
+        }
+
+        void close() {
+            if (pending != null) {
+                // Requests on a cursor must not overlap, delete it once the batch in flight is in
+                pending.thenAccept(ArangoDbAsyncCursor::deleteCursor);
+                pending = null;
+            } else if (batch != null) {
+                ArangoDbAsyncCursor.deleteCursor(batch);
+            }
+        }
+    }
+}
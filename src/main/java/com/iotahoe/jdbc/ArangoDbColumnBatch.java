@@ -0,0 +1,80 @@
+package com.iotahoe.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Rows of a result stored as one {@link ArangoDbColumnVector} per column.
+ * Columns are numbered from 1, as in the row API, and rows from 0.
+ */
+public final class ArangoDbColumnBatch {
+    private final String[] columnNames;
+    private final ArangoDbColumnVector[] columns;
+    private final int rowCount;
+    private final ArangoDbColumnIndex labelIndex;
+
+    ArangoDbColumnBatch(String[] columnNames, ArangoDbColumnVector[] columns, int rowCount) {
+        this.columnNames = columnNames;
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.labelIndex = new ArangoDbColumnIndex(columnNames, false);
+    }
+
+    /**
+     * Collects the rows, given in column order, into column vectors.
+     */
+    static ArangoDbColumnBatch of(String[] columnNames, Iterable<Object[]> rows) {
+        ArangoDbColumnVector.Builder[] builders = newBuilders(columnNames.length);
+        int rowCount = 0;
+        for (Object[] row : rows) {
+            for (int i = 0; i < builders.length && i < row.length; i++) {
+                builders[i].set(rowCount, row[i]);
+            }
+            rowCount++;
+        }
+        return build(columnNames, builders, rowCount);
+    }
+
+    static ArangoDbColumnVector.Builder[] newBuilders(int columnCount) {
+        ArangoDbColumnVector.Builder[] builders = new ArangoDbColumnVector.Builder[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            builders[i] = new ArangoDbColumnVector.Builder();
+        }
+        return builders;
+    }
+
+    static ArangoDbColumnBatch build(String[] columnNames, ArangoDbColumnVector.Builder[] builders, int rowCount) {
+        ArangoDbColumnVector[] columns = new ArangoDbColumnVector[builders.length];
+        for (int i = 0; i < builders.length; i++) {
+            columns[i] = builders[i].build(rowCount);
+        }
+        return new ArangoDbColumnBatch(columnNames, columns, rowCount);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int column) throws SQLException {
+        checkColumn(column);
+        return columnNames[column - 1];
+    }
+
+    public ArangoDbColumnVector getColumn(int column) throws SQLException {
+        checkColumn(column);
+        return columns[column - 1];
+    }
+
+    public ArangoDbColumnVector getColumn(String columnLabel) throws SQLException {
+        return columns[labelIndex.findColumn(columnLabel) - 1];
+    }
+
+    private void checkColumn(int column) throws SQLException {
+        if (column < 1 || column > columns.length) {
+            throw new SQLException("Column index out of range: " + column);
+        }
+    }
+}
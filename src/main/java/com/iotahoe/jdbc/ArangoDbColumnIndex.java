@@ -0,0 +1,73 @@
+package com.iotahoe.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves column labels to column indexes for a result set.
+ * The label index is built on the first lookup, so that result sets read by position never pay
+ * for it, and the last label resolved is remembered, as getters of the same column by label
+ * often follow each other. When several columns have the same label the first one is returned.
+ * With case-insensitive labels an exact match is still preferred, since attribute names that only
+ * differ in case are distinct columns.
+ */
+final class ArangoDbColumnIndex {
+    private final String[] columnNames;
+    private final boolean caseInsensitive;
+    private Map<String, Integer> positions;
+    private Map<String, Integer> lowerCasePositions;
+    private String lastLabel;
+    private int lastColumn;
+
+    ArangoDbColumnIndex(String[] columnNames, boolean caseInsensitive) {
+        this.columnNames = columnNames;
+        this.caseInsensitive = caseInsensitive;
+    }
+
+    /**
+     * Creates the index of a result set of the statement, following the caseInsensitiveLabels
+     * property of its connection.
+     */
+    static ArangoDbColumnIndex of(Statement statement, String[] columnNames) {
+        boolean caseInsensitive = statement instanceof ArangoDbStatement
+                && ((ArangoDbStatement) statement).connection.isCaseInsensitiveLabels();
+        return new ArangoDbColumnIndex(columnNames, caseInsensitive);
+    }
+
+    /**
+     * Returns the index, starting at 1, of the column with the label.
+     */
+    int findColumn(String label) throws SQLException {
+        if (label == null) {
+            throw new SQLException("Column not found: null");
+        }
+        if (label == lastLabel) {
+            return lastColumn;
+        }
+        if (positions == null) {
+            positions = new HashMap<>(columnNames.length * 2);
+            for (int i = 0; i < columnNames.length; i++) {
+                positions.putIfAbsent(columnNames[i], i + 1);
+            }
+        }
+        Integer column = positions.get(label);
+        if (column == null && caseInsensitive) {
+            if (lowerCasePositions == null) {
+                lowerCasePositions = new HashMap<>(columnNames.length * 2);
+                for (int i = 0; i < columnNames.length; i++) {
+                    lowerCasePositions.putIfAbsent(columnNames[i].toLowerCase(Locale.ROOT), i + 1);
+                }
+            }
+            column = lowerCasePositions.get(label.toLowerCase(Locale.ROOT));
+        }
+        if (column == null) {
+            throw new SQLException("Column not found: " + label);
+        }
+        lastLabel = label;
+        lastColumn = column;
+        return column;
+    }
+}
@@ -0,0 +1,380 @@
+package com.iotahoe.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of one column of a {@link ArangoDbColumnBatch}, stored by kind without boxing.
+ * Integer values are stored as a long[], floating point values as a double[] (a column mixing
+ * both is stored as doubles), strings as an int[] of codes into a dictionary of the distinct
+ * strings of the batch, and any other column (booleans, objects, arrays, mixed kinds) as an
+ * Object[] of the values the row API returns. Rows are indexed from 0; the arrays returned may
+ * be longer than the batch, only the first {@link #size()} entries belong to it. The arrays are
+ * not copied and must not be modified.
+ */
+public final class ArangoDbColumnVector {
+
+    /**
+     * How the values of a column are stored.
+     */
+    public enum Kind {
+        /** Every value is null. */
+        NULL,
+        LONG,
+        DOUBLE,
+        STRING,
+        OBJECT
+    }
+
+    private final Kind kind;
+    private final int size;
+    // Bit i of word i / 64 is set when the value of row i is null
+    private final long[] nulls;
+    private final long[] longs;
+    private final double[] doubles;
+    private final int[] codes;
+    private final String[] dictionary;
+    private final Object[] objects;
+
+    private ArangoDbColumnVector(Kind kind, int size, long[] nulls, long[] longs, double[] doubles, int[] codes, String[] dictionary, Object[] objects) {
+        this.kind = kind;
+        this.size = size;
+        this.nulls = nulls;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.objects = objects;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Returns the null bitmap: bit (row % 64) of word (row / 64) is set when the value of the row is null.
+     */
+    public long[] getNullBitmap() {
+        return nulls;
+    }
+
+    /**
+     * Returns the value of a LONG or DOUBLE column as a long, 0 if it is null.
+     */
+    public long getLong(int row) {
+        if (kind == Kind.LONG) {
+            return longs[row];
+        } else if (kind == Kind.DOUBLE) {
+            return (long) doubles[row];
+        }
+        throw wrongKind("numeric");
+    }
+
+    /**
+     * Returns the value of a LONG or DOUBLE column as a double, 0 if it is null.
+     */
+    public double getDouble(int row) {
+        if (kind == Kind.DOUBLE) {
+            return doubles[row];
+        } else if (kind == Kind.LONG) {
+            return longs[row];
+        }
+        throw wrongKind("numeric");
+    }
+
+    /**
+     * Returns the value of a STRING column, null if it is null.
+     */
+    public String getString(int row) {
+        if (kind != Kind.STRING) {
+            throw wrongKind(Kind.STRING.name());
+        }
+        return isNull(row) ? null : dictionary[codes[row]];
+    }
+
+    /**
+     * Returns the value of any column as an object, as the row API would.
+     */
+    public Object getObject(int row) {
+        if (isNull(row)) {
+            return null;
+        }
+        switch (kind) {
+            case LONG:
+                return box(longs[row]);
+            case DOUBLE:
+                return doubles[row];
+            case STRING:
+                return dictionary[codes[row]];
+            case OBJECT:
+                return objects[row];
+            default:
+                return null;
+        }
+    }
+
+    public long[] getLongs() {
+        if (kind != Kind.LONG) {
+            throw wrongKind(Kind.LONG.name());
+        }
+        return longs;
+    }
+
+    public double[] getDoubles() {
+        if (kind != Kind.DOUBLE) {
+            throw wrongKind(Kind.DOUBLE.name());
+        }
+        return doubles;
+    }
+
+    /**
+     * Returns the dictionary codes of a STRING column, the code of a null value is 0.
+     */
+    public int[] getCodes() {
+        if (kind != Kind.STRING) {
+            throw wrongKind(Kind.STRING.name());
+        }
+        return codes;
+    }
+
+    /**
+     * Returns the distinct strings of a STRING column, in order of first appearance.
+     */
+    public String[] getDictionary() {
+        if (kind != Kind.STRING) {
+            throw wrongKind(Kind.STRING.name());
+        }
+        return dictionary;
+    }
+
+    public Object[] getObjects() {
+        if (kind != Kind.OBJECT) {
+            throw wrongKind(Kind.OBJECT.name());
+        }
+        return objects;
+    }
+
+    /**
+     * Boxes an integer as the row API returns it: as an Integer when it fits, as a Long otherwise.
+     * (A conditional expression would promote both to Long.)
+     */
+    private static Object box(long value) {
+        if (value == (int) value) {
+            return Integer.valueOf((int) value);
+        }
+        return Long.valueOf(value);
+    }
+
+    private IllegalStateException wrongKind(String expected) {
+        return new IllegalStateException("Column of kind " + kind + " is not " + expected);
+    }
+
+    /**
+     * Collects the values of a column row by row. The kind is chosen by the values set: it starts
+     * as NULL, integers are stored as longs until a floating point value turns the column into
+     * doubles, and a value of any other kind turns the column into objects. Rows that are not set
+     * are null.
+     */
+    static final class Builder {
+        private Kind kind = Kind.NULL;
+        // Bit set for the rows that have a non-null value
+        private long[] present = new long[1];
+        private long[] longs;
+        private double[] doubles;
+        private int[] codes;
+        private List<String> dictionary;
+        private Map<String, Integer> dictionaryCodes;
+        private Object[] objects;
+
+        /**
+         * Sets the value of a row from its decoded form.
+         */
+        void set(int row, Object value) {
+            if (value == null) {
+                clear(row);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                setLong(row, ((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                setDouble(row, ((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                setString(row, (String) value);
+            } else {
+                setObject(row, value);
+            }
+        }
+
+        void setLong(int row, long value) {
+            if (kind == Kind.NULL) {
+                kind = Kind.LONG;
+                longs = new long[16];
+            }
+            if (kind == Kind.LONG) {
+                longs = ensure(longs, row);
+                longs[row] = value;
+            } else if (kind == Kind.DOUBLE) {
+                doubles = ensure(doubles, row);
+                doubles[row] = value;
+            } else {
+                setObject(row, box(value));
+                return;
+            }
+            mark(row);
+        }
+
+        void setDouble(int row, double value) {
+            if (kind == Kind.NULL) {
+                kind = Kind.DOUBLE;
+                doubles = new double[16];
+            } else if (kind == Kind.LONG) {
+                doubles = new double[longs.length];
+                for (int i = 0; i < longs.length; i++) {
+                    doubles[i] = longs[i];
+                }
+                longs = null;
+                kind = Kind.DOUBLE;
+            }
+            if (kind == Kind.DOUBLE) {
+                doubles = ensure(doubles, row);
+                doubles[row] = value;
+                mark(row);
+            } else {
+                setObject(row, value);
+            }
+        }
+
+        void setString(int row, String value) {
+            if (kind == Kind.NULL) {
+                kind = Kind.STRING;
+                codes = new int[16];
+                dictionary = new ArrayList<>();
+                dictionaryCodes = new HashMap<>();
+            }
+            if (kind != Kind.STRING) {
+                setObject(row, value);
+                return;
+            }
+            Integer code = dictionaryCodes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                dictionaryCodes.put(value, code);
+            }
+            codes = ensure(codes, row);
+            codes[row] = code;
+            mark(row);
+        }
+
+        void setObject(int row, Object value) {
+            if (kind != Kind.OBJECT) {
+                toObjects();
+            }
+            objects = ensure(objects, row);
+            objects[row] = value;
+            mark(row);
+        }
+
+        /**
+         * Sets the value of a row to null.
+         */
+        void clear(int row) {
+            if (row >>> 6 >= present.length || (present[row >>> 6] & (1L << row)) == 0) {
+                return;
+            }
+            present[row >>> 6] &= ~(1L << row);
+            if (kind == Kind.LONG) {
+                longs[row] = 0;
+            } else if (kind == Kind.DOUBLE) {
+                doubles[row] = 0;
+            } else if (kind == Kind.STRING) {
+                codes[row] = 0;
+            } else if (kind == Kind.OBJECT) {
+                objects[row] = null;
+            }
+        }
+
+        ArangoDbColumnVector build(int size) {
+            long[] nulls = new long[(size + 63) >>> 6];
+            for (int i = 0; i < nulls.length; i++) {
+                nulls[i] = ~(i < present.length ? present[i] : 0);
+            }
+            if (size % 64 != 0) {
+                nulls[nulls.length - 1] &= (1L << size) - 1;
+            }
+            // Trailing null rows were never set, the arrays must still cover them
+            if (size > 0) {
+                if (longs != null) {
+                    longs = ensure(longs, size - 1);
+                } else if (doubles != null) {
+                    doubles = ensure(doubles, size - 1);
+                } else if (codes != null) {
+                    codes = ensure(codes, size - 1);
+                } else if (objects != null) {
+                    objects = ensure(objects, size - 1);
+                }
+            }
+            return new ArangoDbColumnVector(kind, size, nulls, longs, doubles, codes,
+                    dictionary != null ? dictionary.toArray(new String[0]) : null, objects);
+        }
+
+        private void toObjects() {
+            int capacity = present.length << 6;
+            Object[] boxed = new Object[capacity];
+            for (int row = 0; row < capacity; row++) {
+                if ((present[row >>> 6] & (1L << row)) == 0) {
+                    continue;
+                }
+                if (kind == Kind.LONG) {
+                    boxed[row] = box(longs[row]);
+                } else if (kind == Kind.DOUBLE) {
+                    boxed[row] = doubles[row];
+                } else if (kind == Kind.STRING) {
+                    boxed[row] = dictionary.get(codes[row]);
+                }
+            }
+            kind = Kind.OBJECT;
+            objects = boxed;
+            longs = null;
+            doubles = null;
+            codes = null;
+            dictionary = null;
+            dictionaryCodes = null;
+        }
+
+        private void mark(int row) {
+            if (row >>> 6 >= present.length) {
+                present = Arrays.copyOf(present, Math.max(present.length * 2, (row >>> 6) + 1));
+            }
+            present[row >>> 6] |= 1L << row;
+        }
+
+        private static long[] ensure(long[] values, int row) {
+            return row < values.length ? values : Arrays.copyOf(values, Math.max(values.length * 2, row + 1));
+        }
+
+        private static double[] ensure(double[] values, int row) {
+            return row < values.length ? values : Arrays.copyOf(values, Math.max(values.length * 2, row + 1));
+        }
+
+        private static int[] ensure(int[] values, int row) {
+            return row < values.length ? values : Arrays.copyOf(values, Math.max(values.length * 2, row + 1));
+        }
+
+        private static Object[] ensure(Object[] values, int row) {
+            return row < values.length ? values : Arrays.copyOf(values, Math.max(values.length * 2, row + 1));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.iotahoe.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Column-oriented reading of a result set, available through
+ * {@code resultSet.unwrap(ArangoDbColumnarResultSet.class)}.
+ * Each call returns the following rows of the result as column vectors, with numbers stored in
+ * primitive arrays and strings dictionary-encoded, so that aggregations over large results do not
+ * allocate an object per value. A cursor result set returns one batch per server batch (the
+ * statement's fetch size); rows returned this way are consumed and are not visible through the
+ * row API, which continues with the row after the batch. maxRows applies.
+ */
+public interface ArangoDbColumnarResultSet {
+
+    /**
+     * Returns the next rows of the result as columns, or null if no rows are left.
+     */
+    ArangoDbColumnBatch nextColumnBatch() throws SQLException;
+}
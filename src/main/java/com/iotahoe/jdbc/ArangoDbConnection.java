@@ -2,15 +2,21 @@ package com.iotahoe.jdbc;
 
 import com.arangodb.ArangoDB;
 import com.arangodb.ArangoDatabase;
+import com.arangodb.ArangoDatabaseAsync;
 import com.arangodb.Protocol;
 import com.arangodb.internal.net.ProtocolProvider;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -26,13 +32,36 @@ public class ArangoDbConnection implements Connection {
     private final Properties info;
     private ArangoDB arangoDB;
     private ArangoDatabase database;
+    private ArangoDatabaseAsync asyncDatabase;
     private boolean closed = false;
     private boolean autoCommit = true;
     private String catalog;
     private String schema;
+    private String initialCatalog;
+    private String initialSchema;
     private int transactionIsolation = TRANSACTION_READ_COMMITTED;
     private boolean readOnly = false;
     private int jdbcMetadataSampleSize;
+    private boolean sharedClient;
+    private long clientIdleTimeout;
+    private ArangoDbClientRegistry.ClientKey clientKey;
+    private boolean cursorLeakDetection;
+    private boolean lazyDecoding;
+    private boolean caseInsensitiveLabels;
+    private int prefetchBatches;
+    private int prefetchMaxRows;
+    private boolean exportMode;
+    private int exportBatchSize;
+    private int exportCursorTtl;
+    private int batchChunkSize;
+    private int maxConnections;
+    private boolean usePlanCache;
+    private ArangoDbResultCache resultCache;
+    private ArangoDbQueryCoalescer queryCoalescer;
+    private ArangoDbBatchDecoder batchDecoder;
+    // Statements created on this connection that have not been closed yet
+    private final Set<ArangoDbStatement> openStatements = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openCursors = new AtomicInteger();
     
     public ArangoDbConnection(String url, Properties info) throws SQLException {
         this.url = url;
@@ -72,105 +101,44 @@ public class ArangoDbConnection implements Connection {
                 dbName = info.getProperty(ArangoDbConstants.PROPERTY_DATABASE_NAME, ArangoDbConstants.SYSTEM_DATABASE);
             }
 
-            // Create ArangoDB.Builder with all possible properties
-            ArangoDB.Builder builder = new ArangoDB.Builder()
-                .host(host, port);
-            
-            // Authentication properties
-            String user = info.getProperty(ArangoDbConstants.PROPERTY_USER, "");
-            String password = info.getProperty(ArangoDbConstants.PROPERTY_PASSWORD, "");
-            
-            if (info.containsKey(ArangoDbConstants.PROPERTY_JWT)) {
-                builder.jwt(info.getProperty(ArangoDbConstants.PROPERTY_JWT));
-            } else {
-                builder.user(user).password(password);
-            }
-            
-            // Connection timeout and timeout properties
-            if (info.containsKey(ArangoDbConstants.PROPERTY_TIMEOUT)) {
-                try {
-                    builder.timeout(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_TIMEOUT)));
-                } catch (NumberFormatException e) {
-                    // Invalid timeout value, use default
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_TIMEOUT, info.getProperty(ArangoDbConstants.PROPERTY_TIMEOUT));
-                }
-            }
-            
-            // Max connections property
-            if (info.containsKey(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS)) {
-                try {
-                    builder.maxConnections(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS)));
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_MAX_CONNECTIONS, info.getProperty(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS));
-                }
-            }
-            
-            // Connection TTL property
-            if (info.containsKey(ArangoDbConstants.PROPERTY_CONNECTION_TTL)) {
-                try {
-                    builder.connectionTtl(Long.parseLong(info.getProperty(ArangoDbConstants.PROPERTY_CONNECTION_TTL)));
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_CONNECTION_TTL, info.getProperty(ArangoDbConstants.PROPERTY_CONNECTION_TTL));
-                }
-            }
-            
-            // Keep-alive interval property
-            if (info.containsKey(ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL)) {
-                try {
-                    builder.keepAliveInterval(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL)));
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL, info.getProperty(ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL));
-                }
-            }
-            
-            // SSL/TLS properties
-            if (info.containsKey(ArangoDbConstants.PROPERTY_USE_SSL)) {
-                builder.useSsl(Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_USE_SSL)));
-            }
-            
-            if (info.containsKey(ArangoDbConstants.PROPERTY_VERIFY_HOST)) {
-                builder.verifyHost(Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_VERIFY_HOST)));
-            }
-            
-            // Cluster properties
-            if (info.containsKey(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST)) {
-                builder.acquireHostList(Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST)));
-            }
-            
-            if (info.containsKey(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL)) {
-                try {
-                    builder.acquireHostListInterval(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL)));
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL, info.getProperty(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL));
-                }
-            }
-            
-            // Response queue time samples property
-            if (info.containsKey(ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES)) {
-                try {
-                    builder.responseQueueTimeSamples(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES)));
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES, info.getProperty(ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES));
-                }
+            // Borrow a shared client for this endpoint or build a dedicated one
+            this.sharedClient = Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_SHARED_CLIENT, ArangoDbConstants.SHARED_CLIENT_DEFAULT));
+            String idleTimeoutStr = info.getProperty(ArangoDbConstants.PROPERTY_CLIENT_IDLE_TIMEOUT, ArangoDbConstants.CLIENT_IDLE_TIMEOUT_DEFAULT);
+            try {
+                this.clientIdleTimeout = Long.parseLong(idleTimeoutStr);
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}, using default value: {}", ArangoDbConstants.PROPERTY_CLIENT_IDLE_TIMEOUT, idleTimeoutStr, ArangoDbConstants.CLIENT_IDLE_TIMEOUT_DEFAULT);
+                this.clientIdleTimeout = Long.parseLong(ArangoDbConstants.CLIENT_IDLE_TIMEOUT_DEFAULT);
             }
-            
-            // Chunk size property
-            if (info.containsKey(ArangoDbConstants.PROPERTY_CHUNK_SIZE)) {
-                try {
-                    builder.chunkSize(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_CHUNK_SIZE)));
-                } catch (NumberFormatException e) {
-                    LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_CHUNK_SIZE, info.getProperty(ArangoDbConstants.PROPERTY_CHUNK_SIZE));
-                }
+            if (sharedClient) {
+                this.clientKey = ArangoDbClientRegistry.ClientKey.of(host, port, info);
+                arangoDB = ArangoDbClientRegistry.acquire(clientKey, () -> buildArangoDB(host, port));
+            } else {
+                arangoDB = buildArangoDB(host, port);
             }
-
-            // Build the ArangoDB instance
-            arangoDB = builder.build();
             
             // Get database
             database = arangoDB.db(dbName);
+            asyncDatabase = arangoDB.async().db(dbName);
             this.catalog = dbName;
             this.schema = info.getProperty("schema", ArangoDbConstants.JDBC_SCHEMA_NAME_DEFAULT);
+            this.initialCatalog = catalog;
+            this.initialSchema = schema;
             
+            this.usePlanCache = Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_USE_PLAN_CACHE, ArangoDbConstants.USE_PLAN_CACHE_DEFAULT));
+            this.cursorLeakDetection = Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_CURSOR_LEAK_DETECTION, ArangoDbConstants.CURSOR_LEAK_DETECTION_DEFAULT));
+            this.lazyDecoding = Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_LAZY_DECODING, ArangoDbConstants.LAZY_DECODING_DEFAULT));
+            this.caseInsensitiveLabels = Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_CASE_INSENSITIVE_LABELS, ArangoDbConstants.CASE_INSENSITIVE_LABELS_DEFAULT));
+            this.prefetchBatches = (int) Math.max(0, Math.min(Integer.MAX_VALUE,
+                    parseLong(ArangoDbConstants.PROPERTY_PREFETCH_BATCHES, ArangoDbConstants.PREFETCH_BATCHES_DEFAULT)));
+            this.prefetchMaxRows = (int) Math.max(0, Math.min(Integer.MAX_VALUE,
+                    parseLong(ArangoDbConstants.PROPERTY_PREFETCH_MAX_ROWS, ArangoDbConstants.PREFETCH_MAX_ROWS_DEFAULT)));
+            this.exportMode = Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_EXPORT_MODE, ArangoDbConstants.EXPORT_MODE_DEFAULT));
+            this.exportBatchSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                    parseLong(ArangoDbConstants.PROPERTY_EXPORT_BATCH_SIZE, ArangoDbConstants.EXPORT_BATCH_SIZE_DEFAULT)));
+            this.exportCursorTtl = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                    parseLong(ArangoDbConstants.PROPERTY_EXPORT_CURSOR_TTL, ArangoDbConstants.EXPORT_CURSOR_TTL_DEFAULT)));
+
             // Parse metadataSampleSize from properties with default value
             String sampleSizeStr = info.getProperty(ArangoDbConstants.JDBC_METADATA_SAMPLE_SIZE, ArangoDbConstants.JDBC_METADATA_SAMPLE_SIZE_DEFAULT);
             try {
@@ -179,15 +147,179 @@ public class ArangoDbConnection implements Connection {
                 LOGGER.error("Invalid value for {}: {}, using default value: {}", ArangoDbConstants.JDBC_METADATA_SAMPLE_SIZE, sampleSizeStr, ArangoDbConstants.JDBC_METADATA_SAMPLE_SIZE_DEFAULT);
                 this.jdbcMetadataSampleSize = Integer.parseInt(ArangoDbConstants.JDBC_METADATA_SAMPLE_SIZE_DEFAULT);
             }
+
+            String batchChunkSizeStr = info.getProperty(ArangoDbConstants.PROPERTY_BATCH_CHUNK_SIZE, ArangoDbConstants.BATCH_CHUNK_SIZE_DEFAULT);
+            try {
+                this.batchChunkSize = Integer.parseInt(batchChunkSizeStr);
+                if (batchChunkSize <= 0) {
+                    throw new NumberFormatException("must be > 0");
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}, using default value: {}", ArangoDbConstants.PROPERTY_BATCH_CHUNK_SIZE, batchChunkSizeStr, ArangoDbConstants.BATCH_CHUNK_SIZE_DEFAULT);
+                this.batchChunkSize = Integer.parseInt(ArangoDbConstants.BATCH_CHUNK_SIZE_DEFAULT);
+            }
+
+            try {
+                this.maxConnections = Math.max(1, Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS, ArangoDbConstants.MAX_CONNECTIONS_DEFAULT)));
+            } catch (NumberFormatException e) {
+                // Already reported when building the client
+                this.maxConnections = Integer.parseInt(ArangoDbConstants.MAX_CONNECTIONS_DEFAULT);
+            }
+
+            if (Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE, ArangoDbConstants.RESULT_CACHE_DEFAULT))) {
+                long maxBytes = parseLong(ArangoDbConstants.PROPERTY_RESULT_CACHE_MAX_BYTES, ArangoDbConstants.RESULT_CACHE_MAX_BYTES_DEFAULT);
+                long ttl = parseLong(ArangoDbConstants.PROPERTY_RESULT_CACHE_TTL, ArangoDbConstants.RESULT_CACHE_TTL_DEFAULT);
+                if (sharedClient) {
+                    this.resultCache = ArangoDbClientRegistry.getClientResource(clientKey, ArangoDbResultCache.class,
+                            Arrays.asList(maxBytes, ttl), () -> new ArangoDbResultCache(maxBytes, ttl));
+                } else {
+                    this.resultCache = new ArangoDbResultCache(maxBytes, ttl);
+                }
+            }
+
+            if (Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_COALESCE_QUERIES, ArangoDbConstants.COALESCE_QUERIES_DEFAULT))) {
+                // Shares the results a cache entry may hold
+                long maxResultBytes = parseLong(ArangoDbConstants.PROPERTY_RESULT_CACHE_MAX_BYTES, ArangoDbConstants.RESULT_CACHE_MAX_BYTES_DEFAULT) / 4;
+                this.queryCoalescer = sharedClient
+                        ? ArangoDbClientRegistry.getClientResource(clientKey, ArangoDbQueryCoalescer.class, maxResultBytes,
+                                () -> new ArangoDbQueryCoalescer(maxResultBytes))
+                        : new ArangoDbQueryCoalescer(maxResultBytes);
+            }
+
+            int decoderThreads = (int) Math.max(0, Math.min(Integer.MAX_VALUE,
+                    parseLong(ArangoDbConstants.PROPERTY_DECODER_THREADS, ArangoDbConstants.DECODER_THREADS_DEFAULT)));
+            if (decoderThreads > 0) {
+                this.batchDecoder = sharedClient
+                        ? ArangoDbClientRegistry.getClientResource(clientKey, ArangoDbBatchDecoder.class, decoderThreads,
+                                () -> new ArangoDbBatchDecoder(arangoDB.getSerde(), decoderThreads))
+                        : new ArangoDbBatchDecoder(arangoDB.getSerde(), decoderThreads);
+            }
             
         } catch (Exception e) {
+            // The connection is not created, give back the client it may have acquired
+            releaseClient();
             throw new SQLException("Failed to initialize ArangoDB connection", e);
         }
     }
     
+    private long parseLong(String property, String defaultValue) {
+        String value = info.getProperty(property, defaultValue);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid value for {}: {}, using default value: {}", property, value, defaultValue);
+            return Long.parseLong(defaultValue);
+        }
+    }
+
+    /**
+     * Builds a new ArangoDB client for the given endpoint from the connection properties.
+     */
+    private ArangoDB buildArangoDB(String host, int port) {
+        // Create ArangoDB.Builder with all possible properties
+        ArangoDB.Builder builder = new ArangoDB.Builder()
+            .host(host, port);
+        
+        // Authentication properties
+        String user = info.getProperty(ArangoDbConstants.PROPERTY_USER, "");
+        String password = info.getProperty(ArangoDbConstants.PROPERTY_PASSWORD, "");
+        
+        if (info.containsKey(ArangoDbConstants.PROPERTY_JWT)) {
+            builder.jwt(info.getProperty(ArangoDbConstants.PROPERTY_JWT));
+        } else {
+            builder.user(user).password(password);
+        }
+        
+        // Connection timeout and timeout properties
+        if (info.containsKey(ArangoDbConstants.PROPERTY_TIMEOUT)) {
+            try {
+                builder.timeout(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_TIMEOUT)));
+            } catch (NumberFormatException e) {
+                // Invalid timeout value, use default
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_TIMEOUT, info.getProperty(ArangoDbConstants.PROPERTY_TIMEOUT));
+            }
+        }
+        
+        // Max connections property
+        if (info.containsKey(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS)) {
+            try {
+                builder.maxConnections(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS)));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_MAX_CONNECTIONS, info.getProperty(ArangoDbConstants.PROPERTY_MAX_CONNECTIONS));
+            }
+        }
+        
+        // Connection TTL property
+        if (info.containsKey(ArangoDbConstants.PROPERTY_CONNECTION_TTL)) {
+            try {
+                builder.connectionTtl(Long.parseLong(info.getProperty(ArangoDbConstants.PROPERTY_CONNECTION_TTL)));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_CONNECTION_TTL, info.getProperty(ArangoDbConstants.PROPERTY_CONNECTION_TTL));
+            }
+        }
+        
+        // Keep-alive interval property
+        if (info.containsKey(ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL)) {
+            try {
+                builder.keepAliveInterval(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL)));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL, info.getProperty(ArangoDbConstants.PROPERTY_KEEP_ALIVE_INTERVAL));
+            }
+        }
+        
+        // SSL/TLS properties
+        if (info.containsKey(ArangoDbConstants.PROPERTY_USE_SSL)) {
+            builder.useSsl(Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_USE_SSL)));
+        }
+        
+        if (info.containsKey(ArangoDbConstants.PROPERTY_VERIFY_HOST)) {
+            builder.verifyHost(Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_VERIFY_HOST)));
+        }
+        
+        // Cluster properties
+        if (info.containsKey(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST)) {
+            builder.acquireHostList(Boolean.parseBoolean(info.getProperty(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST)));
+        }
+        
+        if (info.containsKey(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL)) {
+            try {
+                builder.acquireHostListInterval(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL)));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL, info.getProperty(ArangoDbConstants.PROPERTY_ACQUIRE_HOST_LIST_INTERVAL));
+            }
+        }
+        
+        // Response queue time samples property
+        if (info.containsKey(ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES)) {
+            try {
+                builder.responseQueueTimeSamples(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES)));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES, info.getProperty(ArangoDbConstants.PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES));
+            }
+        }
+        
+        // Chunk size property
+        if (info.containsKey(ArangoDbConstants.PROPERTY_CHUNK_SIZE)) {
+            try {
+                builder.chunkSize(Integer.parseInt(info.getProperty(ArangoDbConstants.PROPERTY_CHUNK_SIZE)));
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value for {}: {}", ArangoDbConstants.PROPERTY_CHUNK_SIZE, info.getProperty(ArangoDbConstants.PROPERTY_CHUNK_SIZE));
+            }
+        }
+
+        return builder.build();
+    }
+    
     public ArangoDatabase getDatabase() {
         return database;
     }
+
+    /**
+     * Returns the asynchronous view of the database, used to run queries that can be cancelled.
+     */
+    public ArangoDatabaseAsync getAsyncDatabase() {
+        return asyncDatabase;
+    }
     
     public String getUrl() {
         return url;
@@ -201,6 +333,140 @@ public class ArangoDbConnection implements Connection {
         return jdbcMetadataSampleSize;
     }
 
+    /**
+     * Returns the maximum number of parameter sets sent to the server in one batch query.
+     */
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    /**
+     * Tells whether prepared statements created on this connection use the server's plan cache.
+     */
+    public boolean isUsePlanCache() {
+        return usePlanCache;
+    }
+
+    /**
+     * Returns the client-side result cache, or null if the resultCache property is not enabled.
+     * With a shared client the cache is shared by all connections borrowing the client.
+     */
+    public ArangoDbResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Returns the coalescer of identical concurrent queries, or null if the coalesceQueries
+     * property is not enabled. With a shared client it is shared by all connections borrowing it.
+     */
+    public ArangoDbQueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    /**
+     * Returns the decoder of cursor batches, or null if the decoderThreads property is not set
+     * and documents are decoded by the driver.
+     */
+    ArangoDbBatchDecoder getBatchDecoder() {
+        return batchDecoder;
+    }
+
+    /**
+     * Returns the size of the client's connection pool per host.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the number of cursor batches fetched in the background ahead of the batch being read.
+     */
+    public int getPrefetchBatches() {
+        return prefetchBatches;
+    }
+
+    /**
+     * Returns the maximum number of rows fetched ahead of the batch being read.
+     */
+    public int getPrefetchMaxRows() {
+        return prefetchMaxRows;
+    }
+
+    /**
+     * Tells whether cursor result sets decode the columns of a row only when they are read.
+     */
+    public boolean isLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Tells whether result sets find columns by label regardless of case.
+     */
+    public boolean isCaseInsensitiveLabels() {
+        return caseInsensitiveLabels;
+    }
+
+    /**
+     * Tells whether statements created on this connection start in export mode.
+     */
+    public boolean isExportMode() {
+        return exportMode;
+    }
+
+    /**
+     * Returns the cursor batch size of export mode queries that do not set a fetch size.
+     */
+    public int getExportBatchSize() {
+        return exportBatchSize;
+    }
+
+    /**
+     * Returns the idle time to live of export mode cursors, in seconds.
+     */
+    public int getExportCursorTtl() {
+        return exportCursorTtl;
+    }
+
+    /**
+     * Returns the number of cursor result sets opened on this connection that are not closed yet.
+     */
+    public int getOpenCursorCount() {
+        return openCursors.get();
+    }
+
+    boolean isCursorLeakDetection() {
+        return cursorLeakDetection;
+    }
+
+    void statementOpened(ArangoDbStatement statement) {
+        openStatements.add(statement);
+    }
+
+    void statementClosed(ArangoDbStatement statement) {
+        openStatements.remove(statement);
+    }
+
+    void cursorOpened() {
+        openCursors.incrementAndGet();
+    }
+
+    void cursorClosed() {
+        openCursors.decrementAndGet();
+    }
+
+    /**
+     * Closes every statement the application left open, deleting their server-side cursors.
+     */
+    void closeOpenStatements() {
+        for (ArangoDbStatement statement : new ArrayList<>(openStatements)) {
+            try {
+                statement.closeAbandoned();
+            } catch (SQLException e) {
+                LOGGER.error("Failed to close statement {}", statement, e);
+            }
+        }
+    }
+
     @Override
     public Statement createStatement() throws SQLException {
         LOGGER.debug("createStatement()");
@@ -263,13 +529,30 @@ public class ArangoDbConnection implements Connection {
     public void close() throws SQLException {
         LOGGER.debug("close()");
         if (!closed) {
-            if (arangoDB != null) {
-                arangoDB.shutdown();
-            }
+            closeOpenStatements();
+            releaseClient();
             closed = true;
         }
     }
 
+    /**
+     * Releases the shared client, or shuts down the dedicated one and its resources.
+     */
+    private void releaseClient() {
+        if (arangoDB == null) {
+            return;
+        }
+        if (sharedClient) {
+            ArangoDbClientRegistry.release(clientKey, clientIdleTimeout);
+        } else {
+            arangoDB.shutdown();
+            // The resources of a dedicated client are not shared
+            if (batchDecoder != null) {
+                batchDecoder.close();
+            }
+        }
+    }
+
     @Override
     public boolean isClosed() throws SQLException {
         return closed;
@@ -557,6 +840,36 @@ public class ArangoDbConnection implements Connection {
         return iface.isAssignableFrom(getClass());
     }
     
+    /**
+     * Lightweight liveness check used by connection pools: asks the server for its version
+     * instead of loading database properties.
+     */
+    boolean ping() {
+        if (closed) {
+            return false;
+        }
+        try {
+            arangoDB.getVersion();
+            return true;
+        } catch (Exception e) {
+            LOGGER.debug("ping() failed", e);
+            return false;
+        }
+    }
+
+    /**
+     * Restores the per-connection state changed through the JDBC API to the values
+     * the connection was opened with. Used when a pooled connection is returned.
+     */
+    void resetState() {
+        LOGGER.debug("resetState()");
+        this.autoCommit = true;
+        this.readOnly = false;
+        this.catalog = initialCatalog;
+        this.schema = initialSchema;
+        this.transactionIsolation = TRANSACTION_READ_COMMITTED;
+    }
+
     private void checkClosed() throws SQLException {
         if (closed) {
             throw new SQLException("Connection is closed");
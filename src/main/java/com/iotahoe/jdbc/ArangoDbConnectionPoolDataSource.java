@@ -0,0 +1,48 @@
+package com.iotahoe.jdbc;
+
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.PooledConnection;
+import java.sql.SQLException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ArangoDB JDBC ConnectionPoolDataSource implementation.
+ * Creates ArangoDbPooledConnection instances for use by connection pools, either
+ * the built-in ArangoDbPooledDataSource or an application server pool.
+ */
+public class ArangoDbConnectionPoolDataSource extends ArangoDbDataSource implements ConnectionPoolDataSource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbConnectionPoolDataSource.class);
+    private static final int MAX_STATEMENTS_DEFAULT = 50;
+    private volatile int maxStatements = MAX_STATEMENTS_DEFAULT;
+
+    public ArangoDbConnectionPoolDataSource() {
+        super();
+        LOGGER.debug("ArangoDbConnectionPoolDataSource()");
+    }
+
+    @Override
+    public PooledConnection getPooledConnection() throws SQLException {
+        LOGGER.debug("getPooledConnection()");
+        return getPooledConnection(getUser(), getPassword());
+    }
+
+    @Override
+    public PooledConnection getPooledConnection(String user, String password) throws SQLException {
+        LOGGER.debug("getPooledConnection(user={}, password=REDACTED)", user);
+        return new ArangoDbPooledConnection(createConnection(user, password), maxStatements);
+    }
+
+    /**
+     * Maximum number of prepared statements cached per pooled connection; 0 disables caching.
+     */
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public void setMaxStatements(int maxStatements) {
+        LOGGER.debug("setMaxStatements(maxStatements={})", maxStatements);
+        this.maxStatements = maxStatements;
+    }
+}
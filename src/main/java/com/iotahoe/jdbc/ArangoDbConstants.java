@@ -8,6 +8,9 @@ public final class ArangoDbConstants {
     public static final String HOST_DEFAULT = "localhost";
     public static final int PORT_DEFAULT = 8529;
     
+    // Server default number of rows per cursor batch
+    public static final int CURSOR_BATCH_SIZE_DEFAULT = 1000;
+
     // Metadata configuration
     public static final String JDBC_METADATA_SAMPLE_SIZE = "jdbcMetadataSampleSize";
     public static final String JDBC_METADATA_SAMPLE_SIZE_DEFAULT = "1000";
@@ -41,4 +44,54 @@ public final class ArangoDbConstants {
     // Response queue properties
     public static final String PROPERTY_RESPONSE_QUEUE_TIME_SAMPLES = "responseQueueTimeSamples";
     public static final String PROPERTY_CHUNK_SIZE = "chunkSize";
+
+    // Shared client properties
+    public static final String PROPERTY_SHARED_CLIENT = "sharedClient";
+    public static final String SHARED_CLIENT_DEFAULT = "true";
+    public static final String PROPERTY_CLIENT_IDLE_TIMEOUT = "clientIdleTimeout";
+    public static final String CLIENT_IDLE_TIMEOUT_DEFAULT = "10000";
+
+    // Cursor lifecycle properties
+    public static final String PROPERTY_CURSOR_LEAK_DETECTION = "cursorLeakDetection";
+    public static final String CURSOR_LEAK_DETECTION_DEFAULT = "false";
+    public static final String PROPERTY_PREFETCH_BATCHES = "prefetchBatches";
+    public static final String PREFETCH_BATCHES_DEFAULT = "0";
+    public static final String PROPERTY_PREFETCH_MAX_ROWS = "prefetchMaxRows";
+    public static final String PREFETCH_MAX_ROWS_DEFAULT = "10000";
+    public static final String PROPERTY_DECODER_THREADS = "decoderThreads";
+    public static final String DECODER_THREADS_DEFAULT = "0";
+    public static final String PROPERTY_LAZY_DECODING = "lazyDecoding";
+    public static final String LAZY_DECODING_DEFAULT = "true";
+    public static final String PROPERTY_CASE_INSENSITIVE_LABELS = "caseInsensitiveLabels";
+    public static final String CASE_INSENSITIVE_LABELS_DEFAULT = "false";
+
+    // Prepared statement properties
+    public static final String PROPERTY_USE_PLAN_CACHE = "usePlanCache";
+    public static final String USE_PLAN_CACHE_DEFAULT = "true";
+
+    // Result cache properties
+    public static final String PROPERTY_RESULT_CACHE = "resultCache";
+    public static final String RESULT_CACHE_DEFAULT = "false";
+    public static final String PROPERTY_RESULT_CACHE_MAX_BYTES = "resultCacheMaxBytes";
+    public static final String RESULT_CACHE_MAX_BYTES_DEFAULT = "67108864";
+    public static final String PROPERTY_RESULT_CACHE_TTL = "resultCacheTtl";
+    public static final String RESULT_CACHE_TTL_DEFAULT = "60000";
+
+    // Query coalescing properties
+    public static final String PROPERTY_COALESCE_QUERIES = "coalesceQueries";
+    public static final String COALESCE_QUERIES_DEFAULT = "false";
+
+    // Export mode properties
+    public static final String PROPERTY_EXPORT_MODE = "exportMode";
+    public static final String EXPORT_MODE_DEFAULT = "false";
+    public static final String PROPERTY_EXPORT_BATCH_SIZE = "exportBatchSize";
+    public static final String EXPORT_BATCH_SIZE_DEFAULT = "10000";
+    public static final String PROPERTY_EXPORT_CURSOR_TTL = "exportCursorTtl";
+    public static final String EXPORT_CURSOR_TTL_DEFAULT = "1800";
+
+    // Batch execution properties
+    public static final String PROPERTY_BATCH_CHUNK_SIZE = "batchChunkSize";
+    public static final String BATCH_CHUNK_SIZE_DEFAULT = "1000";
+    // Default of the driver's HTTP connection pool, bounds the queries of a statement batch in flight
+    public static final String MAX_CONNECTIONS_DEFAULT = "20";
 }
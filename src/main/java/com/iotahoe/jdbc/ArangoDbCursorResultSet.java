@@ -1,17 +1,24 @@
 package com.iotahoe.jdbc;
 
 import com.arangodb.ArangoCursor;
-import com.arangodb.entity.BaseDocument;
+import com.arangodb.util.RawBytes;
 
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,92 +27,398 @@ import org.slf4j.LoggerFactory;
  * ArangoDB JDBC ResultSet implementation.
  * This class implements the java.sql.ResultSet interface for ArangoDB.
  */
-public class ArangoDbCursorResultSet<T> implements ResultSet {
+public class ArangoDbCursorResultSet<T> implements ResultSet, ArangoDbColumnarResultSet, ArangoDbBulkResultSet {
     private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbCursorResultSet.class);
+    // Cursor result sets created and not closed yet, across all connections
+    private static final AtomicInteger LIVE_CURSORS = new AtomicInteger();
+    // Marks the columns of a lazily decoded row that have not been asked for yet
+    private static final Object UNDECODED = new Object();
 
     private final Statement statement;
     private final ArangoCursor<T> cursor;
     private final String[] columnNames;
     private final int[] columnTypes;
+    private final ArangoDbColumnIndex labelIndex;
 
     private int rowCounter = -1;
     private boolean closed = false;
     private boolean wasNull = false;
 
-    private T currentRowData;
-    private T firstRow;
-    private boolean firstRowConsumed = false;
-    
+    // Decodes the rows into slots, the columns are the first slots of its dictionary
+    private final ArangoDbRowDecoder rowDecoder;
+    private Object[] currentRowData;
+    // Undecoded JSON of the current row when it is decoded lazily, null otherwise
+    private byte[] currentRowBytes;
+    private boolean lazyDecoding;
+    // Values of the current lazy row, decoded or UNDECODED, and where they are in its JSON
+    private Object[] lazyValues;
+    private int[] valueStarts;
+    private int[] valueEnds;
+    private boolean rowIndexed;
+    // Rows of the first server batch, read ahead to infer the columns
+    private final Deque<Object[]> firstBatch;
+    private final boolean hasRows;
+    // Hard limit on the number of rows returned, 0 for no limit
+    private final int maxRows;
+    // Rows per server batch, and per column batch
+    private final int batchSize;
+    private boolean cursorReleased = false;
+    // Where the result set was created, recorded only when cursor leak detection is enabled
+    private final Throwable creationTrace;
+    // Rows copied for the result cache while the caller reads them, null when not caching
+    private List<Object[]> cachedRows;
+    private long cachedBytes;
+    private ArangoDbResultCache resultCache;
+    private ArangoDbResultCache.Key cacheKey;
+    private Set<String> cacheCollections;
+    private long cacheGeneration;
+
     public ArangoDbCursorResultSet(Statement statement, ArangoCursor<T> cursor) throws SQLException {
-        LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={})", new Object[]{statement, cursor});
+        this(statement, cursor, ArangoDbConstants.CURSOR_BATCH_SIZE_DEFAULT, 0);
+    }
+
+    /**
+     * Creates a streaming result set over the cursor.
+     * Only the first server batch (at most firstBatchSize rows, which the cursor already holds
+     * when the query returns) is read ahead to infer the columns; later batches are fetched
+     * from the server as the caller advances. Once maxRows rows (if positive) have been
+     * returned the cursor is released on the server and no further batches are fetched.
+     */
+    public ArangoDbCursorResultSet(Statement statement, ArangoCursor<T> cursor, int firstBatchSize, int maxRows) throws SQLException {
+        LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}, firstBatchSize={}, maxRows={})", new Object[]{statement, cursor, firstBatchSize, maxRows});
         this.statement = statement;
         this.cursor = cursor;
+        this.maxRows = maxRows;
+        this.batchSize = Math.max(1, firstBatchSize);
+        if (maxRows > 0) {
+            firstBatchSize = Math.min(firstBatchSize, maxRows);
+        }
         this.currentRowData = null;
+        this.firstBatch = new ArrayDeque<>();
+        this.rowDecoder = new ArangoDbRowDecoder(statement instanceof ArangoDbStatement
+                ? ((ArangoDbStatement) statement).connection.getArangoDB().getSerde()
+                : null);
+        this.lazyDecoding = statement instanceof ArangoDbStatement
+                && ((ArangoDbStatement) statement).connection.isLazyDecoding();
 
         try {
-            while (cursor.hasNext()) {
-                this.firstRow = cursor.next();
+            // Stop at the batch size so that reading ahead never triggers a second round trip
+            while (firstBatch.size() < firstBatchSize && cursor.hasNext()) {
+                firstBatch.add(rowDecoder.decode(cursor.next()));
             }
         } catch (NoSuchElementException e) {
             // Cursor is empty
             LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}) - Cursor is empty", new Object[]{statement, cursor});
-            this.firstRow = null;
+        } catch (ArangoDbAsyncCursor.ArangoDbCursorException e) {
+            releaseCursor();
+            throw e.getCause();
+        } catch (SQLException e) {
+            releaseCursor();
+            throw e;
+        } catch (RuntimeException e) {
+            releaseCursor();
+            throw new SQLException("Failed to read from cursor: " + e.getMessage(), e);
         }
-
-        // Extract column names and types from first row
-        if (this.firstRow != null) {
-            LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}) - First row is not null", new Object[]{statement, cursor});
-            if (this.firstRow instanceof Map) {
-                Map<String, Object> firstRowMap = (Map<String, Object>) this.firstRow;
-                this.columnNames = firstRowMap.keySet().toArray(new String[0]);
-                this.columnTypes = new int[columnNames.length];
-                for (int i = 0; i < columnNames.length; i++) {
-                    Object value = firstRowMap.get(columnNames[i]);
-                    this.columnTypes[i] = ArangoDbJdbcUtils.getSqlType(value);
-                }
-            } else if (this.firstRow instanceof BaseDocument) {
-                BaseDocument firstRowDocument = (BaseDocument) this.firstRow;
-                this.columnNames = firstRowDocument.getProperties().keySet().toArray(new String[0]);
-                this.columnTypes = new int[columnNames.length];
-                for (int i = 0; i < columnNames.length; i++) {
-                    Object value = firstRowDocument.getProperties().get(columnNames[i]);
-                    this.columnTypes[i] = ArangoDbJdbcUtils.getSqlType(value);
+        this.hasRows = !firstBatch.isEmpty();
+
+        // The attributes of the first batch, in order of first appearance, are the columns
+        if (hasRows) {
+            int columnCount = rowDecoder.getColumnCount();
+            this.columnNames = new String[columnCount];
+            this.columnTypes = new int[columnCount];
+            Arrays.fill(columnTypes, Types.NULL);
+            for (int i = 0; i < columnCount; i++) {
+                columnNames[i] = rowDecoder.getColumnName(i);
+            }
+            for (Object[] row : firstBatch) {
+                for (int i = 0; i < row.length; i++) {
+                    if (columnTypes[i] == Types.NULL) {
+                        columnTypes[i] = ArangoDbJdbcUtils.getSqlType(row[i]);
+                    }
                 }
-            } else {
-                throw new SQLException("First row is not a map or base document");
             }
             LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}) - Column names: {}", new Object[]{statement, cursor, Arrays.toString(columnNames)});
             LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}) - Column types: {}", new Object[]{statement, cursor, Arrays.toString(columnTypes)});
+            this.lazyValues = new Object[columnNames.length];
+            this.valueStarts = new int[columnNames.length];
+            this.valueEnds = new int[columnNames.length];
         } else {
-            LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}) - First row is null", new Object[]{statement, cursor});
+            LOGGER.debug("ArangoDbCursorResultSet(statement={}, cursor={}) - First batch is empty", new Object[]{statement, cursor});
             this.columnNames = new String[0];
             this.columnTypes = new int[0];
         }
+
+        this.labelIndex = ArangoDbColumnIndex.of(statement, columnNames);
+
+        boolean leakDetection = statement instanceof ArangoDbStatement
+                && ((ArangoDbStatement) statement).connection.isCursorLeakDetection();
+        this.creationTrace = leakDetection ? new Throwable("Cursor result set created here") : null;
+        LIVE_CURSORS.incrementAndGet();
+        if (statement instanceof ArangoDbStatement) {
+            ((ArangoDbStatement) statement).resultSetOpened(this);
+        }
+    }
+
+    /**
+     * Returns the number of cursor result sets that have been created and not closed yet.
+     */
+    public static int getLiveCursorCount() {
+        return LIVE_CURSORS.get();
     }
     
     @Override
     public boolean next() throws SQLException {
         checkClosed();
-        if (firstRow != null && !firstRowConsumed) {
-            currentRowData = firstRow;
-            firstRowConsumed = true;
-            rowCounter++;
-            return true;
+        if (maxRows > 0 && rowCounter + 1 >= maxRows) {
+            if (currentRowData != null) {
+                releaseCursor();
+            }
+            currentRowData = null;
+            currentRowBytes = null;
+            return false;
         }
 
-        while (cursor.hasNext()) {
-            currentRowData = cursor.next();
+        if (!firstBatch.isEmpty()) {
+            currentRowData = firstBatch.poll();
             rowCounter++;
+            cacheRow();
             return true;
         }
 
+        try {
+            if (!cursorReleased && cursor.hasNext()) {
+                setCurrentRow(cursor.next());
+                rowCounter++;
+                cacheRow();
+                return true;
+            }
+        } catch (ArangoDbAsyncCursor.ArangoDbCursorException e) {
+            cachedRows = null;
+            throw e.getCause();
+        } catch (SQLException e) {
+            cachedRows = null;
+            throw e;
+        } catch (RuntimeException e) {
+            cachedRows = null;
+            throw new SQLException("Failed to fetch the next batch: " + e.getMessage(), e);
+        }
+
         currentRowData = null;
+        currentRowBytes = null;
+        if (cachedRows != null) {
+            // The whole result has been read, it can be served from the cache from now on
+            resultCache.put(cacheKey, columnNames, columnTypes, cachedRows, cacheCollections, cachedBytes, cacheGeneration);
+            cachedRows = null;
+        }
         return false;
     }
 
+    /**
+     * Makes the row read from the cursor the current one. Rows received as JSON are only
+     * decoded column by column as the getters ask for them, unless every column is needed anyway.
+     */
+    private void setCurrentRow(T row) throws SQLException {
+        if (lazyDecoding && lazyValues != null && cachedRows == null && row instanceof RawBytes) {
+            byte[] bytes = ((RawBytes) row).get();
+            if (ArangoDbRowDecoder.isJsonObject(bytes)) {
+                currentRowBytes = bytes;
+                rowIndexed = false;
+                Arrays.fill(lazyValues, UNDECODED);
+                currentRowData = lazyValues;
+                return;
+            }
+        }
+        currentRowBytes = null;
+        currentRowData = rowDecoder.decode(row);
+    }
+
+    /**
+     * Decodes a column of the current lazy row, locating the values of the row first if needed.
+     */
+    private Object decodeColumn(int column) throws SQLException {
+        if (!rowIndexed) {
+            rowDecoder.index(currentRowBytes, valueStarts, valueEnds);
+            rowIndexed = true;
+        }
+        Object value = valueStarts[column] >= 0 ? rowDecoder.decodeValue(currentRowBytes, valueStarts[column], valueEnds[column]) : null;
+        lazyValues[column] = value;
+        return value;
+    }
+
+    /**
+     * Returns the values of the current row in column order, decoding those not decoded yet.
+     */
+    private Object[] currentValues() throws SQLException {
+        Object[] values = Arrays.copyOf(currentRowData, columnNames.length);
+        if (currentRowBytes != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == UNDECODED) {
+                    values[i] = decodeColumn(i);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public ArangoDbColumnBatch nextColumnBatch() throws SQLException {
+        checkClosed();
+        int limit = batchSize;
+        if (maxRows > 0) {
+            limit = Math.min(limit, maxRows - rowCounter - 1);
+        }
+        currentRowData = null;
+        currentRowBytes = null;
+        // Rows that bypass the row API are not copied, the result cannot be cached any more
+        cachedRows = null;
+        if (limit <= 0) {
+            releaseCursor();
+            return null;
+        }
+        if (!firstBatch.isEmpty()) {
+            // The first server batch, read ahead and decoded to infer the columns
+            List<Object[]> rows = new ArrayList<>(Math.min(limit, firstBatch.size()));
+            while (rows.size() < limit && !firstBatch.isEmpty()) {
+                rows.add(firstBatch.poll());
+            }
+            rowCounter += rows.size();
+            return ArangoDbColumnBatch.of(columnNames, rows);
+        }
+        ArangoDbColumnVector.Builder[] columns = ArangoDbColumnBatch.newBuilders(columnNames.length);
+        int rows = 0;
+        try {
+            while (rows < limit && !cursorReleased && cursor.hasNext()) {
+                T row = cursor.next();
+                byte[] bytes = row instanceof RawBytes ? ((RawBytes) row).get() : null;
+                if (bytes != null && ArangoDbRowDecoder.isJsonObject(bytes)) {
+                    rowDecoder.decodeInto(bytes, columns, rows);
+                } else {
+                    Object[] values = rowDecoder.decode(row);
+                    for (int i = 0; i < columns.length && i < values.length; i++) {
+                        columns[i].set(rows, values[i]);
+                    }
+                }
+                rows++;
+            }
+        } catch (ArangoDbAsyncCursor.ArangoDbCursorException e) {
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            throw new SQLException("Failed to fetch the next batch: " + e.getMessage(), e);
+        }
+        rowCounter += rows;
+        return rows > 0 ? ArangoDbColumnBatch.build(columnNames, columns, rows) : null;
+    }
+
+    @Override
+    public int fetchInto(int maxRows, Object[][] dest) throws SQLException {
+        checkClosed();
+        int limit = Math.min(maxRows, dest.length);
+        int count = 0;
+        // Every column of the rows is copied, decode each row in a single pass
+        boolean lazy = lazyDecoding;
+        lazyDecoding = false;
+        try {
+            while (count < limit && next()) {
+                Object[] row = dest[count];
+                if (row == null || row.length < columnNames.length) {
+                    row = new Object[columnNames.length];
+                    dest[count] = row;
+                }
+                Object[] values = currentRowData;
+                int copied = Math.min(values.length, columnNames.length);
+                System.arraycopy(values, 0, row, 0, copied);
+                Arrays.fill(row, copied, columnNames.length, null);
+                count++;
+            }
+        } finally {
+            lazyDecoding = lazy;
+        }
+        return count;
+    }
+
+    /**
+     * Copies the rows into the result cache as they are read; the result is stored once the
+     * cursor is exhausted, unless it turns out to be larger than a cache entry may be.
+     */
+    void cacheInto(ArangoDbResultCache cache, ArangoDbResultCache.Key key, Set<String> collections, long generation) {
+        this.resultCache = cache;
+        this.cacheKey = key;
+        this.cacheCollections = collections;
+        this.cacheGeneration = generation;
+        this.cachedRows = new ArrayList<>();
+    }
+
+    /**
+     * Reads the remaining rows into memory, in column order. Returns null as soon as their
+     * estimated size exceeds maxBytes: the rows read so far are then returned again by next(),
+     * and the result set goes on streaming the rest of the cursor.
+     */
+    ArangoDbQueryCoalescer.Result readAll(long maxBytes) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        long bytes = 0;
+        // Every column of every row is needed
+        boolean lazy = lazyDecoding;
+        lazyDecoding = false;
+        while (next()) {
+            Object[] values = currentValues();
+            rows.add(values);
+            bytes += ArangoDbResultCache.estimateRowSize(values);
+            if (bytes > maxBytes) {
+                for (int i = rows.size() - 1; i >= 0; i--) {
+                    firstBatch.addFirst(rows.get(i));
+                }
+                rowCounter -= rows.size();
+                currentRowData = null;
+                currentRowBytes = null;
+                // Larger than a cache entry may be as well
+                cachedRows = null;
+                lazyDecoding = lazy;
+                return null;
+            }
+        }
+        return new ArangoDbQueryCoalescer.Result(columnNames, columnTypes, Collections.unmodifiableList(rows));
+    }
+
+    private void cacheRow() throws SQLException {
+        if (cachedRows == null) {
+            return;
+        }
+        Object[] values = currentValues();
+        cachedBytes += ArangoDbResultCache.estimateRowSize(values);
+        if (cachedBytes > resultCache.getMaxEntryBytes()) {
+            cachedRows = null;
+        } else {
+            cachedRows.add(values);
+        }
+    }
+
     @Override
     public void close() throws SQLException {
+        LOGGER.debug("close()");
+        if (closed) {
+            return;
+        }
         closed = true;
+        currentRowData = null;
+        currentRowBytes = null;
+        // Deletes the server cursor if it still holds unread batches
+        releaseCursor();
+        LIVE_CURSORS.decrementAndGet();
+        if (statement instanceof ArangoDbStatement) {
+            ((ArangoDbStatement) statement).resultSetClosed(this);
+        }
+    }
+
+    /**
+     * Logs a result set that is being closed on behalf of the application.
+     */
+    void reportLeak() {
+        if (creationTrace != null) {
+            LOGGER.warn("Cursor {} was not closed by the application", cursor.getId(), creationTrace);
+        } else {
+            LOGGER.warn("Cursor {} was not closed by the application, enable {} to see where it was created",
+                    new Object[]{cursor.getId(), ArangoDbConstants.PROPERTY_CURSOR_LEAK_DETECTION});
+        }
     }
 
     @Override
@@ -341,12 +654,7 @@ public class ArangoDbCursorResultSet<T> implements ResultSet {
     @Override
     public int findColumn(String columnLabel) throws SQLException {
         checkClosed();
-        for (int i = 0; i < columnNames.length; i++) {
-            if (columnNames[i].equals(columnLabel)) {
-                return i + 1;
-            }
-        }
-        throw new SQLException("Column not found: " + columnLabel);
+        return labelIndex.findColumn(columnLabel);
     }
 
     @Override
@@ -379,7 +687,7 @@ public class ArangoDbCursorResultSet<T> implements ResultSet {
     @Override
     public boolean isAfterLast() throws SQLException {
         checkClosed();
-        return firstRow != null && rowCounter >= 0 && currentRowData == null && !cursor.hasNext();
+        return hasRows && rowCounter >= 0 && currentRowData == null && firstBatch.isEmpty() && (cursorReleased || !cursor.hasNext());
     }
 
     @Override
@@ -395,7 +703,7 @@ public class ArangoDbCursorResultSet<T> implements ResultSet {
             return false;
         }
 
-        if (!cursor.hasNext()) {
+        if (firstBatch.isEmpty() && (cursorReleased || !cursor.hasNext())) {
             return true;
         }
 
@@ -1197,6 +1505,22 @@ public class ArangoDbCursorResultSet<T> implements ResultSet {
         return iface.isAssignableFrom(getClass());
     }
     
+    /**
+     * Closes the server-side cursor without closing the result set.
+     */
+    private void releaseCursor() {
+        firstBatch.clear();
+        if (cursorReleased) {
+            return;
+        }
+        cursorReleased = true;
+        try {
+            cursor.close();
+        } catch (Exception e) {
+            LOGGER.error("Failed to release cursor {}", cursor.getId(), e);
+        }
+    }
+
     private Object getValue(int columnIndex) throws SQLException {
         checkClosed();
         if (currentRowData == null) {
@@ -1205,15 +1529,10 @@ public class ArangoDbCursorResultSet<T> implements ResultSet {
         if (columnIndex < 1 || columnIndex > columnNames.length) {
             throw new SQLException("Column index out of range: " + columnIndex);
         }
-        if (currentRowData instanceof Map) {
-            Map<String, Object> currentRowDataMap = (Map<String, Object>) currentRowData;
-            return currentRowDataMap.get(columnNames[columnIndex - 1]);
-        } else if (currentRowData instanceof BaseDocument) {
-            BaseDocument currentRowDataDocument = (BaseDocument) currentRowData;
-            return currentRowDataDocument.getProperties().get(columnNames[columnIndex - 1]);
-        } else {
-            throw new SQLException("Current row data is not a map or base document");
-        }
+        // Rows decoded before a later attribute was first met are shorter than the dictionary
+        Object[] row = currentRowData;
+        Object value = columnIndex <= row.length ? row[columnIndex - 1] : null;
+        return value != UNDECODED ? value : decodeColumn(columnIndex - 1);
     }
     
     private void checkClosed() throws SQLException {
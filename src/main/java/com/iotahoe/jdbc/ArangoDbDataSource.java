@@ -12,7 +12,7 @@ import org.slf4j.LoggerFactory;
 public class ArangoDbDataSource implements DataSource {
 
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(ArangoDbDataSource.class);
-    private final Properties properties = new Properties();
+    protected final Properties properties = new Properties();
     private PrintWriter logWriter;
     private int loginTimeout = 0;
 
@@ -35,6 +35,13 @@ public class ArangoDbDataSource implements DataSource {
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
         LOGGER.debug("getConnection(username={}, password=REDACTED)", username);
+        return createConnection(username, password);
+    }
+
+    /**
+     * Opens a new physical connection with the configured properties.
+     */
+    protected ArangoDbConnection createConnection(String username, String password) throws SQLException {
         Properties connectionProps = new Properties(properties);
         if (username != null) {
             connectionProps.setProperty(ArangoDbConstants.PROPERTY_USER, username);
@@ -250,6 +257,244 @@ public class ArangoDbDataSource implements DataSource {
         }
     }
 
+    public Boolean getSharedClient() {
+        String sharedClient = properties.getProperty(ArangoDbConstants.PROPERTY_SHARED_CLIENT);
+        return sharedClient != null ? Boolean.valueOf(sharedClient) : null;
+    }
+
+    public void setSharedClient(Boolean sharedClient) {
+        LOGGER.debug("setSharedClient(sharedClient={})", sharedClient);
+        if (sharedClient != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_SHARED_CLIENT, sharedClient.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_SHARED_CLIENT);
+        }
+    }
+
+    public Long getClientIdleTimeout() {
+        String clientIdleTimeout = properties.getProperty(ArangoDbConstants.PROPERTY_CLIENT_IDLE_TIMEOUT);
+        return clientIdleTimeout != null ? Long.valueOf(clientIdleTimeout) : null;
+    }
+
+    public void setClientIdleTimeout(Long clientIdleTimeout) {
+        LOGGER.debug("setClientIdleTimeout(clientIdleTimeout={})", clientIdleTimeout);
+        if (clientIdleTimeout != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_CLIENT_IDLE_TIMEOUT, clientIdleTimeout.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_CLIENT_IDLE_TIMEOUT);
+        }
+    }
+
+    public Boolean getCursorLeakDetection() {
+        String cursorLeakDetection = properties.getProperty(ArangoDbConstants.PROPERTY_CURSOR_LEAK_DETECTION);
+        return cursorLeakDetection != null ? Boolean.valueOf(cursorLeakDetection) : null;
+    }
+
+    public void setCursorLeakDetection(Boolean cursorLeakDetection) {
+        LOGGER.debug("setCursorLeakDetection(cursorLeakDetection={})", cursorLeakDetection);
+        if (cursorLeakDetection != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_CURSOR_LEAK_DETECTION, cursorLeakDetection.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_CURSOR_LEAK_DETECTION);
+        }
+    }
+
+    public Boolean getUsePlanCache() {
+        String usePlanCache = properties.getProperty(ArangoDbConstants.PROPERTY_USE_PLAN_CACHE);
+        return usePlanCache != null ? Boolean.valueOf(usePlanCache) : null;
+    }
+
+    public void setUsePlanCache(Boolean usePlanCache) {
+        LOGGER.debug("setUsePlanCache(usePlanCache={})", usePlanCache);
+        if (usePlanCache != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_USE_PLAN_CACHE, usePlanCache.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_USE_PLAN_CACHE);
+        }
+    }
+
+    public Boolean getResultCache() {
+        String resultCache = properties.getProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE);
+        return resultCache != null ? Boolean.valueOf(resultCache) : null;
+    }
+
+    public void setResultCache(Boolean resultCache) {
+        LOGGER.debug("setResultCache(resultCache={})", resultCache);
+        if (resultCache != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE, resultCache.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_RESULT_CACHE);
+        }
+    }
+
+    public Long getResultCacheMaxBytes() {
+        String resultCacheMaxBytes = properties.getProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE_MAX_BYTES);
+        return resultCacheMaxBytes != null ? Long.valueOf(resultCacheMaxBytes) : null;
+    }
+
+    public void setResultCacheMaxBytes(Long resultCacheMaxBytes) {
+        LOGGER.debug("setResultCacheMaxBytes(resultCacheMaxBytes={})", resultCacheMaxBytes);
+        if (resultCacheMaxBytes != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE_MAX_BYTES, resultCacheMaxBytes.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_RESULT_CACHE_MAX_BYTES);
+        }
+    }
+
+    public Long getResultCacheTtl() {
+        String resultCacheTtl = properties.getProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE_TTL);
+        return resultCacheTtl != null ? Long.valueOf(resultCacheTtl) : null;
+    }
+
+    public void setResultCacheTtl(Long resultCacheTtl) {
+        LOGGER.debug("setResultCacheTtl(resultCacheTtl={})", resultCacheTtl);
+        if (resultCacheTtl != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_RESULT_CACHE_TTL, resultCacheTtl.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_RESULT_CACHE_TTL);
+        }
+    }
+
+    public Boolean getCoalesceQueries() {
+        String coalesceQueries = properties.getProperty(ArangoDbConstants.PROPERTY_COALESCE_QUERIES);
+        return coalesceQueries != null ? Boolean.valueOf(coalesceQueries) : null;
+    }
+
+    public void setCoalesceQueries(Boolean coalesceQueries) {
+        LOGGER.debug("setCoalesceQueries(coalesceQueries={})", coalesceQueries);
+        if (coalesceQueries != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_COALESCE_QUERIES, coalesceQueries.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_COALESCE_QUERIES);
+        }
+    }
+
+    public Integer getPrefetchBatches() {
+        String prefetchBatches = properties.getProperty(ArangoDbConstants.PROPERTY_PREFETCH_BATCHES);
+        return prefetchBatches != null ? Integer.valueOf(prefetchBatches) : null;
+    }
+
+    public void setPrefetchBatches(Integer prefetchBatches) {
+        LOGGER.debug("setPrefetchBatches(prefetchBatches={})", prefetchBatches);
+        if (prefetchBatches != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_PREFETCH_BATCHES, prefetchBatches.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_PREFETCH_BATCHES);
+        }
+    }
+
+    public Integer getPrefetchMaxRows() {
+        String prefetchMaxRows = properties.getProperty(ArangoDbConstants.PROPERTY_PREFETCH_MAX_ROWS);
+        return prefetchMaxRows != null ? Integer.valueOf(prefetchMaxRows) : null;
+    }
+
+    public void setPrefetchMaxRows(Integer prefetchMaxRows) {
+        LOGGER.debug("setPrefetchMaxRows(prefetchMaxRows={})", prefetchMaxRows);
+        if (prefetchMaxRows != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_PREFETCH_MAX_ROWS, prefetchMaxRows.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_PREFETCH_MAX_ROWS);
+        }
+    }
+
+    public Integer getDecoderThreads() {
+        String decoderThreads = properties.getProperty(ArangoDbConstants.PROPERTY_DECODER_THREADS);
+        return decoderThreads != null ? Integer.valueOf(decoderThreads) : null;
+    }
+
+    public void setDecoderThreads(Integer decoderThreads) {
+        LOGGER.debug("setDecoderThreads(decoderThreads={})", decoderThreads);
+        if (decoderThreads != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_DECODER_THREADS, decoderThreads.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_DECODER_THREADS);
+        }
+    }
+
+    public Boolean getLazyDecoding() {
+        String lazyDecoding = properties.getProperty(ArangoDbConstants.PROPERTY_LAZY_DECODING);
+        return lazyDecoding != null ? Boolean.valueOf(lazyDecoding) : null;
+    }
+
+    public void setLazyDecoding(Boolean lazyDecoding) {
+        LOGGER.debug("setLazyDecoding(lazyDecoding={})", lazyDecoding);
+        if (lazyDecoding != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_LAZY_DECODING, lazyDecoding.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_LAZY_DECODING);
+        }
+    }
+
+    public Boolean getCaseInsensitiveLabels() {
+        String caseInsensitiveLabels = properties.getProperty(ArangoDbConstants.PROPERTY_CASE_INSENSITIVE_LABELS);
+        return caseInsensitiveLabels != null ? Boolean.valueOf(caseInsensitiveLabels) : null;
+    }
+
+    public void setCaseInsensitiveLabels(Boolean caseInsensitiveLabels) {
+        LOGGER.debug("setCaseInsensitiveLabels(caseInsensitiveLabels={})", caseInsensitiveLabels);
+        if (caseInsensitiveLabels != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_CASE_INSENSITIVE_LABELS, caseInsensitiveLabels.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_CASE_INSENSITIVE_LABELS);
+        }
+    }
+
+    public Boolean getExportMode() {
+        String exportMode = properties.getProperty(ArangoDbConstants.PROPERTY_EXPORT_MODE);
+        return exportMode != null ? Boolean.valueOf(exportMode) : null;
+    }
+
+    public void setExportMode(Boolean exportMode) {
+        LOGGER.debug("setExportMode(exportMode={})", exportMode);
+        if (exportMode != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_EXPORT_MODE, exportMode.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_EXPORT_MODE);
+        }
+    }
+
+    public Integer getExportBatchSize() {
+        String exportBatchSize = properties.getProperty(ArangoDbConstants.PROPERTY_EXPORT_BATCH_SIZE);
+        return exportBatchSize != null ? Integer.valueOf(exportBatchSize) : null;
+    }
+
+    public void setExportBatchSize(Integer exportBatchSize) {
+        LOGGER.debug("setExportBatchSize(exportBatchSize={})", exportBatchSize);
+        if (exportBatchSize != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_EXPORT_BATCH_SIZE, exportBatchSize.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_EXPORT_BATCH_SIZE);
+        }
+    }
+
+    public Integer getExportCursorTtl() {
+        String exportCursorTtl = properties.getProperty(ArangoDbConstants.PROPERTY_EXPORT_CURSOR_TTL);
+        return exportCursorTtl != null ? Integer.valueOf(exportCursorTtl) : null;
+    }
+
+    public void setExportCursorTtl(Integer exportCursorTtl) {
+        LOGGER.debug("setExportCursorTtl(exportCursorTtl={})", exportCursorTtl);
+        if (exportCursorTtl != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_EXPORT_CURSOR_TTL, exportCursorTtl.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_EXPORT_CURSOR_TTL);
+        }
+    }
+
+    public Integer getBatchChunkSize() {
+        String batchChunkSize = properties.getProperty(ArangoDbConstants.PROPERTY_BATCH_CHUNK_SIZE);
+        return batchChunkSize != null ? Integer.valueOf(batchChunkSize) : null;
+    }
+
+    public void setBatchChunkSize(Integer batchChunkSize) {
+        LOGGER.debug("setBatchChunkSize(batchChunkSize={})", batchChunkSize);
+        if (batchChunkSize != null) {
+            properties.setProperty(ArangoDbConstants.PROPERTY_BATCH_CHUNK_SIZE, batchChunkSize.toString());
+        } else {
+            properties.remove(ArangoDbConstants.PROPERTY_BATCH_CHUNK_SIZE);
+        }
+    }
+
     public String getSchema() {
         return properties.getProperty("schema");
     }
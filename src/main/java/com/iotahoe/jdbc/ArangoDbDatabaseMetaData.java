@@ -32,6 +32,15 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
         this.connection = connection;
     }
 
+    /**
+     * Creates the statement backing a metadata result set; it is closed together with the result set.
+     */
+    private Statement metadataStatement() throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.closeOnCompletion();
+        return statement;
+    }
+
     @Override
     public ResultSet getCatalogs() throws SQLException {
         LOGGER.debug("getCatalogs()");
@@ -47,10 +56,10 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
                     return row;
                 })
                 .collect(Collectors.toList());
-            return new ArangoDbListResultSet<>(connection.createStatement(), data);
+            return new ArangoDbListResultSet<>(metadataStatement(), data);
         } catch (Exception e) {
             e.printStackTrace();
-            return new ArangoDbListResultSet<>(connection.createStatement(), new ArrayList<>());
+            return new ArangoDbListResultSet<>(metadataStatement(), new ArrayList<>());
         }
     }
 
@@ -98,7 +107,7 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
             row.put("ARANGODB_ENTITY", entity);
             tables.add(row);
         });
-        return new ArangoDbListResultSet<Object>(connection.createStatement(), tables);
+        return new ArangoDbListResultSet<Object>(metadataStatement(), tables);
     }
     
     @Override
@@ -112,7 +121,7 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
         ).map(type->Collections.singletonMap("TABLE_TYPE", type.toString()))
         .collect(Collectors.toList());
 
-        return new ArangoDbListResultSet<>(connection.createStatement(), tableTypes);
+        return new ArangoDbListResultSet<>(metadataStatement(), tableTypes);
     }
 
 
@@ -206,7 +215,7 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
                 };
             };
         });
-        return new ArangoDbListResultSet<Object>(connection.createStatement(),columns);
+        return new ArangoDbListResultSet<Object>(metadataStatement(),columns);
     }
 
     @Override
@@ -226,7 +235,7 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
         row.put("TABLE_CATALOG", dbName);
         row.put("TABLE_SCHEM", connSchema);
         schemas.add(row);
-        return new ArangoDbListResultSet<Object>(connection.createStatement(), schemas);
+        return new ArangoDbListResultSet<Object>(metadataStatement(), schemas);
     }
 
     @Override
@@ -259,25 +268,25 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
             row.put("PK_NAME", String.format("%s_PrimaryKey", collectionName));
             primaryKeys.add(row);
         });
-        return new ArangoDbListResultSet<Object>(connection.createStatement(), primaryKeys);
+        return new ArangoDbListResultSet<Object>(metadataStatement(), primaryKeys);
     }
 
     @Override
     public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
         LOGGER.debug("getImportedKeys(catalog={}, schema={}, table={})", new Object[]{catalog, schema, table});
-        return new ArangoDbListResultSet<Object>(connection.createStatement(),new ArrayList<>());
+        return new ArangoDbListResultSet<Object>(metadataStatement(),new ArrayList<>());
     }
 
     @Override
     public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
         LOGGER.debug("getExportedKeys(catalog={}, schema={}, table={})", new Object[]{catalog, schema, table});
-        return new ArangoDbListResultSet<Object>(connection.createStatement(),new ArrayList<>());
+        return new ArangoDbListResultSet<Object>(metadataStatement(),new ArrayList<>());
     }
 
     @Override
     public ResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) throws SQLException {
         LOGGER.debug("getCrossReference(parentCatalog={}, parentSchema={}, parentTable={}, foreignCatalog={}, foreignSchema={}, foreignTable={})", new Object[]{parentCatalog, parentSchema, parentTable, foreignCatalog, foreignSchema, foreignTable});
-        return new ArangoDbListResultSet<Object>(connection.createStatement(),new ArrayList<>());
+        return new ArangoDbListResultSet<Object>(metadataStatement(),new ArrayList<>());
     }
 
 
@@ -917,7 +926,7 @@ public class ArangoDbDatabaseMetaData implements DatabaseMetaData {
 
     @Override
     public boolean supportsBatchUpdates() throws SQLException {
-        return false;
+        return true;
     }
 
     @Override
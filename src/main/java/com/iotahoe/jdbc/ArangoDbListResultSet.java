@@ -10,16 +10,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Simple ResultSet implementation that works with a list of Maps.
+ * Simple ResultSet implementation that works with a list of Maps or of rows in column order.
  * This is a more straightforward implementation for basic JDBC operations.
  */
-class ArangoDbListResultSet<T extends Object> implements ResultSet {
+class ArangoDbListResultSet<T extends Object> implements ResultSet, ArangoDbColumnarResultSet, ArangoDbBulkResultSet {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbListResultSet.class);
     private final Statement statement;
-    private final List<Map<String, T>> data;
+    // Row values in column order
+    private final List<Object[]> data;
     private final String[] columnNames;
     private final int[] columnTypes;
+    private final ArangoDbColumnIndex labelIndex;
     
     private int currentRow = -1;
     private boolean closed = false;
@@ -28,21 +30,48 @@ class ArangoDbListResultSet<T extends Object> implements ResultSet {
     public ArangoDbListResultSet(Statement statement, List<Map<String, T>> data) {
         LOGGER.debug("ArangoDbListResultSet(statement={}, data.size={})", new Object[]{statement, data != null ? data.size() : 0});
         this.statement = statement;
-        this.data = data != null ? data : new ArrayList<>();
+        this.data = new ArrayList<>(data != null ? data.size() : 0);
         
         // Extract column names and types from first row
-        if (!this.data.isEmpty()) {
-            Map<String, T> firstRow = this.data.get(0);
+        if (data != null && !data.isEmpty()) {
+            Map<String, T> firstRow = data.get(0);
             this.columnNames = firstRow.keySet().toArray(new String[0]);
             this.columnTypes = new int[columnNames.length];
             for (int i = 0; i < columnNames.length; i++) {
                 T value = firstRow.get(columnNames[i]);
                 this.columnTypes[i] = ArangoDbJdbcUtils.getSqlType(value);
             }
+            for (Map<String, T> row : data) {
+                Object[] values = new Object[columnNames.length];
+                for (int i = 0; i < columnNames.length; i++) {
+                    values[i] = row.get(columnNames[i]);
+                }
+                this.data.add(values);
+            }
         } else {
             this.columnNames = new String[0];
             this.columnTypes = new int[0];
         }
+        this.labelIndex = ArangoDbColumnIndex.of(statement, this.columnNames);
+        if (statement instanceof ArangoDbStatement) {
+            ((ArangoDbStatement) statement).resultSetOpened(this);
+        }
+    }
+
+    /**
+     * Creates a result set over rows that are already in column order, such as cached query results.
+     * The rows are not copied and must not be modified afterwards.
+     */
+    public ArangoDbListResultSet(Statement statement, String[] columnNames, int[] columnTypes, List<Object[]> rows) {
+        LOGGER.debug("ArangoDbListResultSet(statement={}, columnNames={}, rows.size={})", new Object[]{statement, Arrays.toString(columnNames), rows.size()});
+        this.statement = statement;
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.data = rows;
+        this.labelIndex = ArangoDbColumnIndex.of(statement, columnNames);
+        if (statement instanceof ArangoDbStatement) {
+            ((ArangoDbStatement) statement).resultSetOpened(this);
+        }
     }
     
     @Override
@@ -55,9 +84,48 @@ class ArangoDbListResultSet<T extends Object> implements ResultSet {
         return false;
     }
 
+    /**
+     * Returns all the remaining rows as a single batch.
+     */
+    @Override
+    public ArangoDbColumnBatch nextColumnBatch() throws SQLException {
+        checkClosed();
+        int first = currentRow + 1;
+        if (first >= data.size()) {
+            return null;
+        }
+        currentRow = data.size();
+        return ArangoDbColumnBatch.of(columnNames, data.subList(first, data.size()));
+    }
+
+    @Override
+    public int fetchInto(int maxRows, Object[][] dest) throws SQLException {
+        checkClosed();
+        int first = Math.max(currentRow + 1, 0);
+        int count = Math.max(0, Math.min(Math.min(maxRows, dest.length), data.size() - first));
+        for (int i = 0; i < count; i++) {
+            Object[] row = dest[i];
+            if (row == null || row.length < columnNames.length) {
+                row = new Object[columnNames.length];
+                dest[i] = row;
+            }
+            System.arraycopy(data.get(first + i), 0, row, 0, columnNames.length);
+        }
+        if (count > 0) {
+            currentRow = first + count - 1;
+        }
+        return count;
+    }
+
     @Override
     public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
         closed = true;
+        if (statement instanceof ArangoDbStatement) {
+            ((ArangoDbStatement) statement).resultSetClosed(this);
+        }
     }
 
     @Override
@@ -244,12 +312,7 @@ class ArangoDbListResultSet<T extends Object> implements ResultSet {
     @Override
     public int findColumn(String columnLabel) throws SQLException {
         checkClosed();
-        for (int i = 0; i < columnNames.length; i++) {
-            if (columnNames[i].equals(columnLabel)) {
-                return i + 1;
-            }
-        }
-        throw new SQLException("Column not found: " + columnLabel);
+        return labelIndex.findColumn(columnLabel);
     }
 
     @Override
@@ -400,8 +463,7 @@ class ArangoDbListResultSet<T extends Object> implements ResultSet {
         if (columnIndex < 1 || columnIndex > columnNames.length) {
             throw new SQLException("Column index out of range: " + columnIndex);
         }
-        Map<String, T> row = data.get(currentRow);
-        return row.get(columnNames[columnIndex - 1]);
+        return data.get(currentRow)[columnIndex - 1];
     }
     
     private void checkClosed() throws SQLException {
@@ -0,0 +1,200 @@
+package com.iotahoe.jdbc;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEvent;
+import javax.sql.StatementEventListener;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ArangoDB JDBC PooledConnection implementation.
+ * Wraps a physical ArangoDbConnection and hands out logical connection handles.
+ * Closing a handle resets the connection state and notifies the registered listeners
+ * instead of closing the physical connection. Prepared statements created through a
+ * handle are kept in a per-connection LRU cache and reused for the same query text.
+ */
+public class ArangoDbPooledConnection implements PooledConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbPooledConnection.class);
+    private final ArangoDbConnection physicalConnection;
+    private final int maxStatements;
+    private final List<ConnectionEventListener> connectionEventListeners = new CopyOnWriteArrayList<>();
+    private final List<StatementEventListener> statementEventListeners = new CopyOnWriteArrayList<>();
+    // Only touched by the thread currently holding the logical connection
+    private final Map<String, ArangoDbPreparedStatement> statementCache;
+    private ArangoDbPooledConnectionHandle currentHandle;
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile boolean closed = false;
+
+    public ArangoDbPooledConnection(ArangoDbConnection physicalConnection, int maxStatements) {
+        LOGGER.debug("ArangoDbPooledConnection(physicalConnection={}, maxStatements={})", new Object[]{physicalConnection, maxStatements});
+        this.physicalConnection = physicalConnection;
+        this.maxStatements = maxStatements;
+        this.statementCache = new LinkedHashMap<String, ArangoDbPreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ArangoDbPreparedStatement> eldest) {
+                if (size() > ArangoDbPooledConnection.this.maxStatements) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        LOGGER.debug("getConnection()");
+        checkClosed();
+        if (currentHandle != null) {
+            // JDBC: opening a new handle closes the previous one
+            currentHandle.invalidate();
+        }
+        currentHandle = new ArangoDbPooledConnectionHandle(this, physicalConnection);
+        return currentHandle;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        LOGGER.debug("close()");
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (currentHandle != null) {
+            currentHandle.invalidate();
+            currentHandle = null;
+        }
+        for (ArangoDbPreparedStatement statement : statementCache.values()) {
+            closeQuietly(statement);
+        }
+        statementCache.clear();
+        physicalConnection.close();
+    }
+
+    @Override
+    public void addConnectionEventListener(ConnectionEventListener listener) {
+        connectionEventListeners.add(listener);
+    }
+
+    @Override
+    public void removeConnectionEventListener(ConnectionEventListener listener) {
+        connectionEventListeners.remove(listener);
+    }
+
+    @Override
+    public void addStatementEventListener(StatementEventListener listener) {
+        statementEventListeners.add(listener);
+    }
+
+    @Override
+    public void removeStatementEventListener(StatementEventListener listener) {
+        statementEventListeners.remove(listener);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns true if the physical connection is usable. The server is only pinged if the
+     * connection has been idle for longer than validationIntervalMillis.
+     */
+    boolean validate(long validationIntervalMillis) {
+        if (closed) {
+            return false;
+        }
+        if (System.currentTimeMillis() - lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        return physicalConnection.ping();
+    }
+
+    /**
+     * Returns a cached prepared statement for the query text or prepares a new one.
+     */
+    PreparedStatement prepareStatement(String sql, Connection handle) throws SQLException {
+        checkClosed();
+        ArangoDbPreparedStatement statement = statementCache.remove(sql);
+        if (statement == null) {
+            statement = (ArangoDbPreparedStatement) physicalConnection.prepareStatement(sql);
+        } else {
+            LOGGER.debug("prepareStatement(sql={}) - statement cache hit", sql);
+        }
+        if (maxStatements > 0) {
+            statement.attachToPool(this, handle);
+        } else {
+            statement.setLogicalConnection(handle);
+        }
+        return statement;
+    }
+
+    /**
+     * Called by a cached prepared statement when the application closes it.
+     */
+    void returnStatement(ArangoDbPreparedStatement statement) {
+        if (!closed && maxStatements > 0) {
+            ArangoDbPreparedStatement previous = statementCache.put(statement.getQueryText(), statement);
+            if (previous != null && previous != statement) {
+                closeQuietly(previous);
+            }
+        }
+        StatementEvent event = new StatementEvent(this, statement);
+        for (StatementEventListener listener : statementEventListeners) {
+            listener.statementClosed(event);
+        }
+    }
+
+    /**
+     * Called by a logical handle when the application closes it.
+     */
+    void handleClosed(ArangoDbPooledConnectionHandle handle) {
+        if (handle != currentHandle) {
+            return;
+        }
+        currentHandle = null;
+        physicalConnection.closeOpenStatements();
+        physicalConnection.resetState();
+        lastUsed = System.currentTimeMillis();
+        ConnectionEvent event = new ConnectionEvent(this);
+        for (ConnectionEventListener listener : connectionEventListeners) {
+            listener.connectionClosed(event);
+        }
+    }
+
+    /**
+     * Called by a logical handle when the physical connection must not be reused.
+     */
+    void handleError(ArangoDbPooledConnectionHandle handle, SQLException e) {
+        if (handle == currentHandle) {
+            currentHandle = null;
+        }
+        ConnectionEvent event = new ConnectionEvent(this, e);
+        for (ConnectionEventListener listener : connectionEventListeners) {
+            listener.connectionErrorOccurred(event);
+        }
+    }
+
+    private void closeQuietly(ArangoDbPreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to close cached statement", e);
+        }
+    }
+
+    private void checkClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("PooledConnection is closed");
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.iotahoe.jdbc;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logical connection handed out by ArangoDbPooledConnection.
+ * Delegates to the physical ArangoDbConnection until closed; closing it returns the
+ * physical connection to its pool instead of closing it.
+ */
+class ArangoDbPooledConnectionHandle implements Connection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbPooledConnectionHandle.class);
+    private final ArangoDbPooledConnection pooledConnection;
+    private final ArangoDbConnection physicalConnection;
+    private volatile boolean closed = false;
+
+    ArangoDbPooledConnectionHandle(ArangoDbPooledConnection pooledConnection, ArangoDbConnection physicalConnection) {
+        LOGGER.debug("ArangoDbPooledConnectionHandle(pooledConnection={})", pooledConnection);
+        this.pooledConnection = pooledConnection;
+        this.physicalConnection = physicalConnection;
+    }
+
+    /**
+     * Closes this handle without returning the physical connection to the pool.
+     */
+    void invalidate() {
+        closed = true;
+    }
+
+    private Statement attach(Statement statement) {
+        ((ArangoDbStatement) statement).setLogicalConnection(this);
+        return statement;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        checkClosed();
+        return attach(physicalConnection.createStatement());
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        checkClosed();
+        return pooledConnection.prepareStatement(sql, this);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        checkClosed();
+        return physicalConnection.prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        checkClosed();
+        return physicalConnection.nativeSQL(sql);
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        checkClosed();
+        physicalConnection.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        checkClosed();
+        return physicalConnection.getAutoCommit();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        checkClosed();
+        physicalConnection.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        checkClosed();
+        physicalConnection.rollback();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        LOGGER.debug("close()");
+        if (!closed) {
+            closed = true;
+            pooledConnection.handleClosed(this);
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        checkClosed();
+        return physicalConnection.getMetaData();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        checkClosed();
+        physicalConnection.setReadOnly(readOnly);
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        checkClosed();
+        return physicalConnection.isReadOnly();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        checkClosed();
+        physicalConnection.setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        checkClosed();
+        return physicalConnection.getCatalog();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        checkClosed();
+        physicalConnection.setTransactionIsolation(level);
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        checkClosed();
+        return physicalConnection.getTransactionIsolation();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        checkClosed();
+        return physicalConnection.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        checkClosed();
+        physicalConnection.clearWarnings();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        checkClosed();
+        return attach(physicalConnection.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        checkClosed();
+        return pooledConnection.prepareStatement(sql, this);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        checkClosed();
+        return physicalConnection.prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        checkClosed();
+        return physicalConnection.getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        checkClosed();
+        physicalConnection.setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        checkClosed();
+        physicalConnection.setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        checkClosed();
+        return physicalConnection.getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        checkClosed();
+        return physicalConnection.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        checkClosed();
+        return physicalConnection.setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        checkClosed();
+        physicalConnection.rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        checkClosed();
+        physicalConnection.releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        checkClosed();
+        return attach(physicalConnection.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        checkClosed();
+        return pooledConnection.prepareStatement(sql, this);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        checkClosed();
+        return physicalConnection.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        checkClosed();
+        return pooledConnection.prepareStatement(sql, this);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        checkClosed();
+        return pooledConnection.prepareStatement(sql, this);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        checkClosed();
+        return pooledConnection.prepareStatement(sql, this);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        checkClosed();
+        return physicalConnection.createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        checkClosed();
+        return physicalConnection.createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        checkClosed();
+        return physicalConnection.createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        checkClosed();
+        return physicalConnection.createSQLXML();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        if (closed) {
+            return false;
+        }
+        return physicalConnection.ping();
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        physicalConnection.setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        physicalConnection.setClientInfo(properties);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        checkClosed();
+        return physicalConnection.getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        checkClosed();
+        return physicalConnection.getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        checkClosed();
+        return physicalConnection.createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        checkClosed();
+        return physicalConnection.createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        checkClosed();
+        physicalConnection.setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        checkClosed();
+        return physicalConnection.getSchema();
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        LOGGER.debug("abort(executor={})", executor);
+        if (!closed) {
+            closed = true;
+            pooledConnection.handleError(this, new SQLException("Connection aborted"));
+        }
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        checkClosed();
+        physicalConnection.setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        checkClosed();
+        return physicalConnection.getNetworkTimeout();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isAssignableFrom(getClass())) {
+            return iface.cast(this);
+        }
+        checkClosed();
+        return physicalConnection.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isAssignableFrom(getClass()) || physicalConnection.isWrapperFor(iface);
+    }
+
+    private void checkClosed() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection is closed");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.iotahoe.jdbc;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pooling DataSource for ArangoDB.
+ * getConnection() borrows a pooled connection and closing the returned connection gives it
+ * back to the pool. Borrow and return only use a lock-free deque and atomic counters.
+ * Idle connections are validated with a lightweight ping when they have been idle for longer
+ * than the validation interval; connections beyond maxIdle are closed on return.
+ */
+public class ArangoDbPooledDataSource extends ArangoDbConnectionPoolDataSource implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbPooledDataSource.class);
+    private static final int MIN_IDLE_DEFAULT = 0;
+    private static final int MAX_IDLE_DEFAULT = 8;
+    private static final long VALIDATION_INTERVAL_DEFAULT = 5000L;
+
+    private final Deque<ArangoDbPooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicBoolean initialized = new AtomicBoolean(false);
+    private final ConnectionEventListener poolListener = new ConnectionEventListener() {
+        @Override
+        public void connectionClosed(ConnectionEvent event) {
+            recycle((ArangoDbPooledConnection) event.getSource());
+        }
+
+        @Override
+        public void connectionErrorOccurred(ConnectionEvent event) {
+            discard((ArangoDbPooledConnection) event.getSource());
+        }
+    };
+    private volatile int minIdle = MIN_IDLE_DEFAULT;
+    private volatile int maxIdle = MAX_IDLE_DEFAULT;
+    private volatile long validationInterval = VALIDATION_INTERVAL_DEFAULT;
+    private volatile boolean closed = false;
+
+    public ArangoDbPooledDataSource() {
+        super();
+        LOGGER.debug("ArangoDbPooledDataSource()");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        LOGGER.debug("getConnection()");
+        if (closed) {
+            throw new SQLException("DataSource is closed");
+        }
+        if (initialized.compareAndSet(false, true)) {
+            fillToMinIdle();
+        }
+        ArangoDbPooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (pooledConnection.validate(validationInterval)) {
+                return pooledConnection.getConnection();
+            }
+            LOGGER.debug("getConnection() - discarding invalid pooled connection");
+            discard(pooledConnection);
+        }
+        return newPooledConnection().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        LOGGER.debug("getConnection(username={}, password=REDACTED)", username);
+        if (Objects.equals(username, getUser()) && Objects.equals(password, getPassword())) {
+            return getConnection();
+        }
+        // Connections for other credentials are not pooled
+        return createConnection(username, password);
+    }
+
+    /**
+     * Closes all idle connections. Connections currently in use are closed when returned.
+     */
+    @Override
+    public void close() {
+        LOGGER.debug("close()");
+        closed = true;
+        ArangoDbPooledConnection pooledConnection;
+        while ((pooledConnection = idleConnections.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            discard(pooledConnection);
+        }
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        LOGGER.debug("setMinIdle(minIdle={})", minIdle);
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        LOGGER.debug("setMaxIdle(maxIdle={})", maxIdle);
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Idle time in milliseconds after which a connection is pinged before being handed out.
+     */
+    public long getValidationInterval() {
+        return validationInterval;
+    }
+
+    public void setValidationInterval(long validationInterval) {
+        LOGGER.debug("setValidationInterval(validationInterval={})", validationInterval);
+        this.validationInterval = validationInterval;
+    }
+
+    private ArangoDbPooledConnection newPooledConnection() throws SQLException {
+        ArangoDbPooledConnection pooledConnection = (ArangoDbPooledConnection) getPooledConnection();
+        pooledConnection.addConnectionEventListener(poolListener);
+        return pooledConnection;
+    }
+
+    private void fillToMinIdle() throws SQLException {
+        while (idleCount.get() < minIdle && !closed) {
+            recycle(newPooledConnection());
+        }
+    }
+
+    private void recycle(ArangoDbPooledConnection pooledConnection) {
+        if (closed || pooledConnection.isClosed()) {
+            discard(pooledConnection);
+            return;
+        }
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            discard(pooledConnection);
+            return;
+        }
+        // LIFO: the most recently used connection is the most likely to be valid
+        idleConnections.offerFirst(pooledConnection);
+        // close() may have drained the idle connections in the meantime
+        if (closed && idleConnections.remove(pooledConnection)) {
+            idleCount.decrementAndGet();
+            discard(pooledConnection);
+        }
+    }
+
+    private void discard(ArangoDbPooledConnection pooledConnection) {
+        pooledConnection.removeConnectionEventListener(poolListener);
+        try {
+            pooledConnection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to close pooled connection", e);
+        }
+    }
+}
@@ -1,21 +1,27 @@
 package com.iotahoe.jdbc;
 
-import com.arangodb.ArangoDatabase;
 import com.arangodb.entity.BaseDocument;
 import com.arangodb.ArangoCursor;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
+import com.arangodb.model.AqlQueryOptions;
+
 import java.sql.*;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,52 +29,110 @@ import org.slf4j.LoggerFactory;
  * ArangoDB JDBC PreparedStatement implementation.
  * This class implements the java.sql.PreparedStatement interface for ArangoDB.
  * ArangoDB only supports named parameters (@paramName), so positional setter methods
- * are mapped to named parameters based on their order in the query.
+ * are mapped to named parameters based on their order in the query. JDBC ? placeholders
+ * are rewritten to the named parameters @p1, @p2, ... when the statement is prepared.
  */
-public class ArangoDbPreparedStatement extends ArangoDbStatement implements PreparedStatement {
+public class ArangoDbPreparedStatement extends ArangoDbStatement implements PreparedStatement, ArangoDbAsyncPreparedStatement {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbPreparedStatement.class);
+    // Marks parameters that have not been set
+    private static final Object UNSET = new Object();
     private final String queryText;
-    private final Map<String, Object> namedParameters;
-    private final List<String> parameterOrder; // Order of parameters as they appear in the query
-    private final Map<Integer, String> indexToParameterName; // Maps parameter index to parameter name
+    private final ArangoDbQueryTemplate template;
+    private final Object[] parameterValues; // Indexed like the template's parameter names
+    private ArangoDbPooledConnection statementPool; // Set while the statement is lent out from a statement cache
+    private final List<Map<String, Object>> batch = new ArrayList<>(); // Parameter sets collected by addBatch()
+    private boolean usePlanCache; // Ask the server to reuse the execution plan across bind values
     
-    // Pattern to match named parameters like @paramName
-    private static final Pattern NAMED_PARAMETER_PATTERN = Pattern.compile("@([a-zA-Z_][a-zA-Z0-9_]*)");
+    // Names used by the bulk query wrapping batched executions
+    private static final String BATCH_ROW_VARIABLE = "__jdbc_row";
+    private static final String BATCH_BIND_VARIABLE = "__jdbc_batch";
     
     public ArangoDbPreparedStatement(ArangoDbConnection connection, String queryText) {
         super(connection);
         LOGGER.debug("ArangoDbPreparedStatement(connection={}, queryText={})", new Object[]{connection, queryText});
         this.queryText = queryText;
-        this.namedParameters = new HashMap<>();
-        this.parameterOrder = extractParameterOrder(queryText);
-        this.indexToParameterName = createIndexMapping();
+        this.template = ArangoDbQueryTemplate.of(queryText);
+        this.parameterValues = new Object[template.getParameterCount()];
+        Arrays.fill(parameterValues, UNSET);
+        this.usePlanCache = connection.isUsePlanCache();
+        try {
+            setPoolable(true); // PreparedStatements are poolable by default
+        } catch (SQLException e) {
+            // Cannot happen on a new statement
+        }
     }
-    
+
+    String getQueryText() {
+        return queryText;
+    }
+
     /**
-     * Extracts parameter names in the order they appear in the query.
+     * Lends this statement out from the statement cache of a pooled connection.
      */
-    private List<String> extractParameterOrder(String sql) {
-        List<String> order = new ArrayList<>();
-        Matcher matcher = NAMED_PARAMETER_PATTERN.matcher(sql);
-        while (matcher.find()) {
-            String paramName = matcher.group(1);
-            if (!order.contains(paramName)) { // Avoid duplicates
-                order.add(paramName);
+    void attachToPool(ArangoDbPooledConnection statementPool, Connection logicalConnection) {
+        this.statementPool = statementPool;
+        setLogicalConnection(logicalConnection);
+        reopen();
+    }
+
+    @Override
+    void reopen() {
+        super.reopen();
+        usePlanCache = connection.isUsePlanCache();
+        try {
+            setPoolable(true);
+        } catch (SQLException e) {
+            // Cannot happen on an open statement
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        LOGGER.debug("close()");
+        ArangoDbPooledConnection pool = statementPool;
+        if (pool != null && !isClosed() && isPoolable()) {
+            statementPool = null;
+            if (currentResultSet != null) {
+                currentResultSet.close();
+                currentResultSet = null;
             }
+            Arrays.fill(parameterValues, UNSET);
+            batch.clear();
+            usePlanCache = connection.isUsePlanCache();
+            setLogicalConnection(null);
+            super.close();
+            pool.returnStatement(this);
+            return;
         }
-        return order;
+        statementPool = null;
+        super.close();
     }
     
     /**
-     * Creates a mapping from parameter index (1-based) to parameter name.
+     * Enables or disables the server-side plan cache (ArangoDB 3.12 and later) for this
+     * statement. With the plan cache, executions that differ only in their bind values reuse
+     * the execution plan of an earlier execution instead of optimizing the query again.
+     * Older servers ignore the option.
      */
-    private Map<Integer, String> createIndexMapping() {
-        Map<Integer, String> mapping = new HashMap<>();
-        for (int i = 0; i < parameterOrder.size(); i++) {
-            mapping.put(i + 1, parameterOrder.get(i)); // 1-based indexing
+    public void setUsePlanCache(boolean usePlanCache) throws SQLException {
+        LOGGER.debug("setUsePlanCache(usePlanCache={})", usePlanCache);
+        checkClosed();
+        this.usePlanCache = usePlanCache;
+    }
+
+    public boolean isUsePlanCache() throws SQLException {
+        checkClosed();
+        return usePlanCache;
+    }
+
+    @Override
+    protected AqlQueryOptions createQueryOptions() {
+        AqlQueryOptions options = super.createQueryOptions();
+        if (usePlanCache) {
+            options.usePlanCache(true);
         }
-        return mapping;
+        return options;
     }
 
     /**
@@ -77,23 +141,34 @@ public class ArangoDbPreparedStatement extends ArangoDbStatement implements Prep
      */
     private void validateParameters() throws SQLException {
         // Check that all required parameters are set
-        for (String paramName : parameterOrder) {
-            if (!namedParameters.containsKey(paramName)) {
-                throw new SQLException("Parameter '" + paramName + "' is not set");
+        for (int i = 0; i < parameterValues.length; i++) {
+            if (parameterValues[i] == UNSET) {
+                throw new SQLException("Parameter '" + template.getParameterName(i) + "' is not set");
             }
         }
     }
 
+    /**
+     * Returns the bind variables of the current parameter values.
+     */
+    private Map<String, Object> getBindVars() {
+        Map<String, Object> bindVars = new HashMap<>(parameterValues.length * 2);
+        for (int i = 0; i < parameterValues.length; i++) {
+            bindVars.put(template.getParameterName(i), parameterValues[i]);
+        }
+        return bindVars;
+    }
+
     @Override
     public ResultSet executeQuery() throws SQLException {
         LOGGER.debug("executeQuery()");
         checkClosed();
         try {
             validateParameters();
-            ArangoDatabase database = connection.getDatabase();
-            ArangoCursor<BaseDocument> cursor = database.query(queryText, BaseDocument.class, namedParameters, null);
-            currentResultSet = new ArangoDbCursorResultSet<BaseDocument>(this, cursor);
+            currentResultSet = executeCursorQuery(template.getQuery(), getBindVars());
             return currentResultSet;
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Failed to execute prepared query", e);
         }
@@ -105,27 +180,60 @@ public class ArangoDbPreparedStatement extends ArangoDbStatement implements Prep
         checkClosed();
         try {
             validateParameters();
-            ArangoDatabase database = connection.getDatabase();
-            try(ArangoCursor<BaseDocument> cursor = database.query(queryText, BaseDocument.class, namedParameters, null)){
-                if (cursor.hasNext()){
-                    return cursor.getCount();
-                }
-                return 0;
-            }
+            return executeUpdateQuery(template.getQuery(), getBindVars());
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Failed to execute prepared update", e);
         }
     }
 
+    @Override
+    public CompletableFuture<ResultSet> executeQueryAsync() {
+        LOGGER.debug("executeQueryAsync()");
+        try {
+            checkClosed();
+            validateParameters();
+            return executeCursorQueryAsync(template.getQuery(), getBindVars());
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new SQLException("Failed to execute prepared query", e));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdateAsync() {
+        LOGGER.debug("executeUpdateAsync()");
+        try {
+            checkClosed();
+            validateParameters();
+            return executeUpdateQueryAsync(template.getQuery(), getBindVars());
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new SQLException("Failed to execute prepared update", e));
+        }
+    }
+
+    @Override
+    public Flow.Publisher<Map<String, Object>> publishQuery() throws SQLException {
+        LOGGER.debug("publishQuery()");
+        checkClosed();
+        validateParameters();
+        return new ArangoDbRowPublisher(this, template.getQuery(), getBindVars());
+    }
+
     @Override
     public boolean execute() throws SQLException {
         LOGGER.debug("execute()");
         checkClosed();
         try {
             validateParameters();
-            ArangoDatabase database = connection.getDatabase();
-            try(ArangoCursor<BaseDocument> cursor = database.query(queryText, BaseDocument.class, namedParameters, null)){}
+            try(ArangoCursor<BaseDocument> cursor = runQuery(template.getQuery(), getBindVars(), BaseDocument.class, createQueryOptions())){}
             return true;
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Failed to execute prepared statement", e);
         }
@@ -133,129 +241,128 @@ public class ArangoDbPreparedStatement extends ArangoDbStatement implements Prep
 
     /**
      * Sets a named parameter value.
-     * @param parameterName the name of the parameter (without @)
+     * @param parameterName the name of the parameter (without @; a collection parameter
+     *                      written @@name in the query may be given as name or @name)
      * @param value the parameter value
      * @throws SQLException if the parameter name is not found in the query
      */
     public void setParameter(String parameterName, Object value) throws SQLException {
         LOGGER.debug("setParameter(parameterName={}, value={})", new Object[]{parameterName, value});
         checkClosed();
-        if (!parameterOrder.contains(parameterName)) {
+        int index = template.getParameterIndex(parameterName);
+        if (index < 0) {
+            index = template.getParameterIndex("@" + parameterName);
+        }
+        if (index < 0) {
             throw new SQLException("Parameter '" + parameterName + "' not found in query");
         }
-        namedParameters.put(parameterName, value);
+        parameterValues[index] = value;
+    }
+
+    private void setParameterValue(int parameterIndex, Object value) throws SQLException {
+        if (parameterIndex < 1 || parameterIndex > template.getJdbcParameterCount()) {
+            throw new SQLException("Parameter index out of range: " + parameterIndex + 
+                                 ". Query has " + template.getJdbcParameterCount() + " parameters.");
+        }
+        parameterValues[template.getJdbcParameterIndex(parameterIndex)] = value;
     }
 
     @Override
     public void setNull(int parameterIndex, int sqlType) throws SQLException {
         LOGGER.debug("setNull(parameterIndex={}, sqlType={})", new Object[]{parameterIndex, sqlType});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, null);
+        setParameterValue(parameterIndex, null);
     }
 
     @Override
     public void setBoolean(int parameterIndex, boolean x) throws SQLException {
         LOGGER.debug("setBoolean(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setByte(int parameterIndex, byte x) throws SQLException {
         LOGGER.debug("setByte(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setShort(int parameterIndex, short x) throws SQLException {
         LOGGER.debug("setShort(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setInt(int parameterIndex, int x) throws SQLException {
         LOGGER.debug("setInt(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setLong(int parameterIndex, long x) throws SQLException {
         LOGGER.debug("setLong(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setFloat(int parameterIndex, float x) throws SQLException {
         LOGGER.debug("setFloat(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setDouble(int parameterIndex, double x) throws SQLException {
         LOGGER.debug("setDouble(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
         LOGGER.debug("setBigDecimal(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setString(int parameterIndex, String x) throws SQLException {
         LOGGER.debug("setString(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setBytes(int parameterIndex, byte[] x) throws SQLException {
         LOGGER.debug("setBytes(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setDate(int parameterIndex, Date x) throws SQLException {
         LOGGER.debug("setDate(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setTime(int parameterIndex, Time x) throws SQLException {
         LOGGER.debug("setTime(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
         LOGGER.debug("setTimestamp(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
@@ -276,47 +383,129 @@ public class ArangoDbPreparedStatement extends ArangoDbStatement implements Prep
         throw new SQLFeatureNotSupportedException("setBinaryStream not supported");
     }
 
-    /**
-     * Gets the parameter name for a given parameter index.
-     * @param parameterIndex the 1-based parameter index
-     * @return the parameter name
-     * @throws SQLException if the parameter index is out of range
-     */
-    private String getParameterName(int parameterIndex) throws SQLException {
-        if (parameterIndex < 1 || parameterIndex > parameterOrder.size()) {
-            throw new SQLException("Parameter index out of range: " + parameterIndex + 
-                                 ". Query has " + parameterOrder.size() + " parameters.");
-        }
-        return indexToParameterName.get(parameterIndex);
-    }
-
     @Override
     public void clearParameters() throws SQLException {
         LOGGER.debug("clearParameters()");
         checkClosed();
-        namedParameters.clear();
+        Arrays.fill(parameterValues, UNSET);
     }
 
     @Override
     public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
         LOGGER.debug("setObject(parameterIndex={}, x={}, targetSqlType={})", new Object[]{parameterIndex, x, targetSqlType});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void setObject(int parameterIndex, Object x) throws SQLException {
         LOGGER.debug("setObject(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public void addBatch() throws SQLException {
+        LOGGER.debug("addBatch()");
+        checkClosed();
+        validateParameters();
+        batch.add(getBindVars());
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        checkClosed();
+        throw new SQLException("addBatch(String) cannot be called on a PreparedStatement");
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        LOGGER.debug("clearBatch()");
         checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations not supported");
+        batch.clear();
+    }
+
+    /**
+     * Executes the collected parameter sets in bulk. Each chunk of at most batchChunkSize
+     * parameter sets is sent as one array bind variable and the query runs once per element
+     * inside a single AQL FOR loop, so a chunk costs one round trip instead of one per row.
+     * The server only reports the number of documents written by a whole query, so every
+     * parameter set is reported as SUCCESS_NO_INFO and getUpdateCount() returns the number of
+     * documents written by the batch.
+     */
+    @Override
+    public int[] executeBatch() throws SQLException {
+        LOGGER.debug("executeBatch()");
+        checkClosed();
+        List<Map<String, Object>> rows = new ArrayList<>(batch);
+        batch.clear();
+        setUpdateCount(-1);
+        int[] updateCounts = new int[rows.size()];
+        long writes = 0;
+        int chunkSize = connection.getBatchChunkSize();
+        for (int start = 0; start < rows.size(); start += chunkSize) {
+            List<Map<String, Object>> chunk = rows.subList(start, Math.min(start + chunkSize, rows.size()));
+            try {
+                writes += executeBatchChunk(chunk);
+                Arrays.fill(updateCounts, start, start + chunk.size(), SUCCESS_NO_INFO);
+            } catch (SQLException | RuntimeException e) {
+                throw new BatchUpdateException("Failed to execute batch rows " + start + " to " + (start + chunk.size() - 1) + ": " + e.getMessage(),
+                        Arrays.copyOf(updateCounts, start), e);
+            }
+        }
+        setUpdateCount((int) Math.min(writes, Integer.MAX_VALUE));
+        return updateCounts;
+    }
+
+    /**
+     * Runs the query once for each parameter set of the chunk and returns the number of
+     * documents written.
+     */
+    private int executeBatchChunk(List<Map<String, Object>> chunk) throws SQLException {
+        // Parameters with the same value in every row stay plain bind variables, so they can
+        // still be used where AQL requires a constant (collection names, LIMIT)
+        Map<String, Object> first = chunk.get(0);
+        Set<String> varying = new LinkedHashSet<>();
+        for (Map<String, Object> row : chunk) {
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                if (!Objects.equals(entry.getValue(), first.get(entry.getKey()))) {
+                    varying.add(entry.getKey());
+                }
+            }
+        }
+        Map<String, Object> bindVars = new HashMap<>(first);
+        bindVars.keySet().removeAll(varying);
+        Map<String, String> replacements = new HashMap<>();
+        for (String name : varying) {
+            if (template.isCollectionParameter(template.getParameterIndex(name))) {
+                throw new SQLException("Collection parameter '" + name + "' must have the same value in every batch row");
+            }
+            replacements.put(name, BATCH_ROW_VARIABLE + ".`" + name + "`");
+        }
+        List<Map<String, Object>> rowValues = new ArrayList<>(chunk.size());
+        for (Map<String, Object> row : chunk) {
+            Map<String, Object> values = new HashMap<>();
+            for (String name : varying) {
+                values.put(name, row.get(name));
+            }
+            rowValues.add(values);
+        }
+        bindVars.put(BATCH_BIND_VARIABLE, rowValues);
+
+        String query = template.replaceParameters(replacements);
+        // A WITH clause must start the query, it stays in front of the loop over the rows
+        int withClauseEnd = template.getWithClauseEnd();
+        String aql = query.substring(0, withClauseEnd) + (withClauseEnd > 0 ? " " : "")
+                + "FOR " + BATCH_ROW_VARIABLE + " IN @" + BATCH_BIND_VARIABLE
+                + " LET __jdbc_result = (" + query.substring(withClauseEnd) + ")"
+                + " RETURN null";
+        // As for executeUpdate(), the rows are not shipped and the count comes from the statistics
+        AqlQueryOptions options = createQueryOptions().count(false).batchSize(1);
+        try (ArangoCursor<Object> cursor = runQuery(aql, bindVars, Object.class, options)) {
+            return writesExecuted(cursor.getStats());
+        } catch (IOException e) {
+            throw new SQLException("Failed to close batch cursor", e);
+        }
     }
 
     @Override
@@ -382,14 +571,13 @@ public class ArangoDbPreparedStatement extends ArangoDbStatement implements Prep
     public void setURL(int parameterIndex, URL x) throws SQLException {
         LOGGER.debug("setURL(parameterIndex={}, x={})", new Object[]{parameterIndex, x});
         checkClosed();
-        String paramName = getParameterName(parameterIndex);
-        namedParameters.put(paramName, x);
+        setParameterValue(parameterIndex, x);
     }
 
     @Override
     public ParameterMetaData getParameterMetaData() throws SQLException {
         checkClosed();
-        return new ArangoDbParameterMetaData(parameterOrder.size());
+        return new ArangoDbParameterMetaData(template.getJdbcParameterCount());
     }
 
     @Override
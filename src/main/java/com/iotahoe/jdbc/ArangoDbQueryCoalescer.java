@@ -0,0 +1,130 @@
+package com.iotahoe.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single-flight execution of identical read queries.
+ * While a query is running, other callers issuing the same query with the same bind variables
+ * (same key as the result cache) wait for it instead of sending their own request, and every
+ * caller then reads the same decoded rows through its own result set. Nothing is kept once the
+ * query has completed, so results are never older than the request that produced them.
+ * Only results up to a size limit are shared: a larger result is streamed to the caller that ran
+ * the query, and the callers waiting for it run the query themselves.
+ */
+public final class ArangoDbQueryCoalescer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbQueryCoalescer.class);
+
+    private final Map<ArangoDbResultCache.Key, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final long maxResultBytes;
+
+    ArangoDbQueryCoalescer(long maxResultBytes) {
+        this.maxResultBytes = maxResultBytes;
+    }
+
+    /**
+     * Loads a result by running the query, or returns null if it is too large to be shared.
+     */
+    interface Loader {
+        Result load() throws SQLException;
+    }
+
+    /**
+     * Returns the result for the key, either by loading it or by waiting for the caller that is
+     * already loading it. A waiting caller gives up after timeoutSeconds (if positive); if the
+     * loading caller fails or finds the result too large to share, a waiting caller loads the
+     * result itself. Returns null if the result loaded by this caller is too large to share.
+     */
+    Result execute(ArangoDbResultCache.Key key, int timeoutSeconds, Loader loader) throws SQLException {
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        CompletableFuture<Result> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            executions.incrementAndGet();
+            try {
+                Result result = loader.load();
+                mine.complete(result);
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+        try {
+            Result result = timeoutSeconds > 0 ? running.get(timeoutSeconds, TimeUnit.SECONDS) : running.get();
+            if (result == null) {
+                executions.incrementAndGet();
+                return loader.load();
+            }
+            coalesced.incrementAndGet();
+            return result;
+        } catch (ExecutionException e) {
+            // The failure may be specific to the other caller (cancelled, timed out)
+            LOGGER.debug("execute() - coalesced query failed, running it again: {}", e.getCause().getMessage());
+            executions.incrementAndGet();
+            return loader.load();
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("Query did not complete within " + timeoutSeconds + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the query", e);
+        }
+    }
+
+    /**
+     * Returns the estimated size above which a result is not shared.
+     */
+    long getMaxResultBytes() {
+        return maxResultBytes;
+    }
+
+    /**
+     * Returns the number of queries sent to the server through the coalescer.
+     */
+    public long getExecutionCount() {
+        return executions.get();
+    }
+
+    /**
+     * Returns the number of callers that were served by another caller's query.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the number of distinct queries currently running.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * A decoded query result in column order, shared read-only between callers.
+     */
+    static final class Result {
+        final String[] columnNames;
+        final int[] columnTypes;
+        final List<Object[]> rows;
+
+        Result(String[] columnNames, int[] columnTypes, List<Object[]> rows) {
+            this.columnNames = columnNames;
+            this.columnTypes = columnTypes;
+            this.rows = rows;
+        }
+    }
+}
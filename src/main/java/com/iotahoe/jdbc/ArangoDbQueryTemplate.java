@@ -0,0 +1,549 @@
+package com.iotahoe.jdbc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed form of an AQL query text with its bind parameters.
+ * Templates are immutable and shared through a bounded cache keyed by query text, so preparing
+ * the same query again does not scan it again.
+ * JDBC positional placeholders (?) are rewritten to the bind variables @p1, @p2, ... so that the
+ * query text sent to the server is stable and can be served from its plan cache.
+ * The scan also records, on a best-effort basis, the collections a query names, whether it
+ * modifies data and whether its result may depend on more than its text and bind values; the
+ * client-side result cache relies on these.
+ */
+final class ArangoDbQueryTemplate {
+    // Maximum number of cached templates; an arbitrary part of the cache is dropped when it is full
+    private static final int CACHE_SIZE = 2048;
+    private static final Map<String, ArangoDbQueryTemplate> CACHE = new ConcurrentHashMap<>();
+    // Prefix of the bind variables generated for positional placeholders
+    static final String POSITIONAL_PARAMETER_PREFIX = "p";
+    // Keywords followed by a collection name
+    private static final Set<String> COLLECTION_KEYWORDS = new HashSet<>(Arrays.asList("IN", "INTO", "WITH"));
+    private static final Set<String> WRITE_KEYWORDS = new HashSet<>(Arrays.asList("INSERT", "UPDATE", "REPLACE", "REMOVE", "UPSERT"));
+    // Constructs that read collections the query text does not name (graphs, views, documents by id)
+    private static final Set<String> INDIRECT_KEYWORDS = new HashSet<>(Arrays.asList(
+            "GRAPH", "OUTBOUND", "INBOUND", "ANY", "SEARCH", "DOCUMENT", "COLLECTION_COUNT"));
+    // Words that are values rather than names when passed to a function
+    private static final Set<String> LITERALS = new HashSet<>(Arrays.asList("TRUE", "FALSE", "NULL", "CURRENT", "NEW", "OLD"));
+    // Keywords after which an operand is expected, like after an operator
+    private static final Set<String> OPERATOR_KEYWORDS = new HashSet<>(Arrays.asList(
+            "FOR", "RETURN", "FILTER", "SEARCH", "SORT", "LIMIT", "LET", "COLLECT", "WINDOW", "INSERT", "UPDATE",
+            "REPLACE", "REMOVE", "UPSERT", "WITH", "AGGREGATE", "INTO", "KEEP", "IN", "NOT", "AND", "OR", "LIKE",
+            "ALL", "ANY", "NONE", "AT", "LEAST", "ASC", "DESC", "DISTINCT", "OUTBOUND", "INBOUND", "GRAPH", "PRUNE",
+            "OPTIONS", "TO", "SHORTEST_PATH", "K_SHORTEST_PATHS", "K_PATHS", "ALL_SHORTEST_PATHS"));
+    // Words that may follow [? in an array filter
+    private static final Set<String> ARRAY_FILTER_WORDS = new HashSet<>(Arrays.asList("ANY", "ALL", "NONE", "AT", "FILTER"));
+    // Functions whose result is not determined by the query and the data
+    private static final Set<String> NONDETERMINISTIC_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "RAND", "RANDOM_TOKEN", "UUID", "DATE_NOW", "SLEEP", "CALL", "APPLY", "CURRENT_USER", "FAIL"));
+
+    private final String query;
+    // Query text without comments and with whitespace collapsed, for cache keys
+    private final String normalizedQuery;
+    // Distinct bind parameter names in order of first appearance; collection parameters keep one '@'
+    private final String[] parameterNames;
+    private final Map<String, Integer> parameterIndexes;
+    // Start and end offsets in query of every parameter reference, and the index of its name
+    private final int[] referenceStarts;
+    private final int[] referenceEnds;
+    private final int[] referenceParameters;
+    // Offsets of the positional placeholders found by the scan
+    private final int[] positionalPlaceholders;
+    // Parameter index of each JDBC parameter index (0-based)
+    private final int[] jdbcParameters;
+    private final Set<String> collections;
+    private final boolean indirectCollections;
+    private final boolean write;
+    private final boolean deterministic;
+    // Offset just after the collection list of a leading WITH clause, 0 without one
+    private final int withClauseEnd;
+
+    private ArangoDbQueryTemplate(Scan scan) {
+        this.query = scan.query;
+        this.normalizedQuery = scan.normalized.toString();
+        this.parameterNames = scan.names.toArray(new String[0]);
+        this.parameterIndexes = scan.indexes;
+        this.referenceStarts = new int[scan.references.size()];
+        this.referenceEnds = new int[scan.references.size()];
+        this.referenceParameters = new int[scan.references.size()];
+        for (int i = 0; i < scan.references.size(); i++) {
+            referenceStarts[i] = scan.references.get(i)[0];
+            referenceEnds[i] = scan.references.get(i)[1];
+            referenceParameters[i] = scan.references.get(i)[2];
+        }
+        this.positionalPlaceholders = new int[scan.placeholders.size()];
+        for (int i = 0; i < scan.placeholders.size(); i++) {
+            positionalPlaceholders[i] = scan.placeholders.get(i);
+        }
+        // Positional setters address the ? placeholders only, collection parameters are set by name
+        int count = 0;
+        int[] jdbc = new int[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (!scan.positional || parameterNames[i].charAt(0) != '@') {
+                jdbc[count++] = i;
+            }
+        }
+        this.jdbcParameters = Arrays.copyOf(jdbc, count);
+        this.collections = Collections.unmodifiableSet(scan.collections);
+        this.indirectCollections = scan.indirectCollections;
+        this.write = scan.write;
+        this.deterministic = scan.deterministic;
+        this.withClauseEnd = scan.withClauseEnd;
+    }
+
+    /**
+     * Returns the template of the query, parsing it only if it is not cached.
+     */
+    static ArangoDbQueryTemplate of(String query) {
+        ArangoDbQueryTemplate template = CACHE.get(query);
+        if (template == null) {
+            template = parse(query);
+            if (CACHE.size() >= CACHE_SIZE) {
+                Iterator<String> keys = CACHE.keySet().iterator();
+                for (int i = 0; i < CACHE_SIZE / 8 && keys.hasNext(); i++) {
+                    keys.next();
+                    keys.remove();
+                }
+            }
+            ArangoDbQueryTemplate previous = CACHE.putIfAbsent(query, template);
+            if (previous != null) {
+                template = previous;
+            }
+        }
+        return template;
+    }
+
+    String getQuery() {
+        return query;
+    }
+
+    int getParameterCount() {
+        return parameterNames.length;
+    }
+
+    /**
+     * Returns the bind variable name of the parameter at the 0-based index.
+     */
+    String getParameterName(int index) {
+        return parameterNames[index];
+    }
+
+    /**
+     * Returns the number of parameters addressed by JDBC parameter indexes.
+     */
+    int getJdbcParameterCount() {
+        return jdbcParameters.length;
+    }
+
+    /**
+     * Returns the 0-based parameter index addressed by the 1-based JDBC parameter index:
+     * the parameters in order of appearance, or the ? placeholders if the query used them.
+     */
+    int getJdbcParameterIndex(int parameterIndex) {
+        return jdbcParameters[parameterIndex - 1];
+    }
+
+    /**
+     * Returns the 0-based index of the bind parameter, or -1 if the query does not use it.
+     */
+    int getParameterIndex(String name) {
+        Integer index = parameterIndexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Tells whether the parameter at the 0-based index is a collection parameter (@@name).
+     */
+    boolean isCollectionParameter(int index) {
+        return parameterNames[index].charAt(0) == '@';
+    }
+
+    String getNormalizedQuery() {
+        return normalizedQuery;
+    }
+
+    /**
+     * Tells whether the query inserts, updates, replaces or removes documents.
+     */
+    boolean isWrite() {
+        return write;
+    }
+
+    /**
+     * Tells whether the result of the query may be reused for the same bind values: it does not
+     * write and calls no function whose result varies between executions.
+     */
+    boolean isCacheable() {
+        return !write && deterministic;
+    }
+
+    /**
+     * Returns the collections the query names, with collection parameters resolved from the
+     * bind variables, or null if it may access collections it does not name (graphs, views,
+     * DOCUMENT(), COLLECTION_COUNT()) or a collection parameter is unbound. Bare names passed
+     * to functions, as in LENGTH(orders), are included since they may be collections.
+     */
+    Set<String> getCollections(Map<String, Object> bindVars) {
+        if (indirectCollections) {
+            return null;
+        }
+        Set<String> resolved = new HashSet<>(collections);
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (isCollectionParameter(i)) {
+                Object value = bindVars != null ? bindVars.get(parameterNames[i]) : null;
+                if (value == null) {
+                    return null;
+                }
+                resolved.add(value.toString());
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns the offset in the query text just after the collection list of the WITH clause
+     * the query starts with, or 0 if it does not start with one. A WITH clause may only start
+     * a query, so it has to be kept in front when the query is wrapped into another one.
+     */
+    int getWithClauseEnd() {
+        return withClauseEnd;
+    }
+
+    /**
+     * Returns the query text with every reference to the given parameters replaced by an expression.
+     */
+    String replaceParameters(Map<String, String> replacements) {
+        StringBuilder aql = new StringBuilder(query.length() + 16 * replacements.size());
+        int last = 0;
+        for (int i = 0; i < referenceStarts.length; i++) {
+            String replacement = replacements.get(parameterNames[referenceParameters[i]]);
+            if (replacement != null) {
+                aql.append(query, last, referenceStarts[i]).append(replacement);
+                last = referenceEnds[i];
+            }
+        }
+        return aql.append(query, last, query.length()).toString();
+    }
+
+    /**
+     * Scans the query with the AQL lexical rules: string literals ('..' and ".." with backslash
+     * escapes), quoted names (`..` and ´..´), line and block comments are skipped, and bind
+     * parameters (@name and @@name) are recorded.
+     * A query without named value parameters has its ? placeholders rewritten to @p1, @p2, ...
+     * in order (collection parameters may still be used). In a query with named value parameters
+     * ? keeps its AQL meaning. Only a ? where an operand is expected (at the start, after an
+     * operator, an opening bracket, a comma or a keyword) is a placeholder: a ? after a complete
+     * operand is the ternary operator, and the array filter [? ...] and the ?: operator are never
+     * placeholders.
+     */
+    static ArangoDbQueryTemplate parse(String query) {
+        ArangoDbQueryTemplate template = scan(query);
+        if (template.positionalPlaceholders.length == 0) {
+            return template;
+        }
+        for (int i = 0; i < template.parameterNames.length; i++) {
+            if (!template.isCollectionParameter(i)) {
+                return template;
+            }
+        }
+        StringBuilder rewritten = new StringBuilder(query.length() + 4 * template.positionalPlaceholders.length);
+        int last = 0;
+        for (int i = 0; i < template.positionalPlaceholders.length; i++) {
+            int position = template.positionalPlaceholders[i];
+            rewritten.append(query, last, position).append('@').append(POSITIONAL_PARAMETER_PREFIX).append(i + 1);
+            last = position + 1;
+        }
+        return scan(rewritten.append(query, last, query.length()).toString(), true);
+    }
+
+    private static ArangoDbQueryTemplate scan(String query) {
+        return scan(query, false);
+    }
+
+    private static ArangoDbQueryTemplate scan(String query, boolean positional) {
+        Scan scan = new Scan(query, positional);
+        char previous = ' ';
+        // Whether the last token completes an operand, after which ? is the ternary operator
+        boolean afterOperand = false;
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            int start = i;
+            if (c == '\'' || c == '"' || c == '`' || c == '´') {
+                i = skipQuoted(query, i, c);
+                if (c == '`' || c == '´') {
+                    scan.name(query.substring(start + 1, Math.max(start + 1, i - 1)), query, i);
+                } else {
+                    scan.collectionContext = 0;
+                }
+                afterOperand = true;
+                scan.normalized.append(query, start, i);
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '/') {
+                while (i < length && query.charAt(i) != '\n') {
+                    i++;
+                }
+                scan.space();
+                continue;
+            } else if (c == '/' && i + 1 < length && query.charAt(i + 1) == '*') {
+                int end = query.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                scan.space();
+                continue;
+            } else if (c == '@') {
+                int nameStart = i + 1;
+                if (nameStart < length && query.charAt(nameStart) == '@') {
+                    nameStart++;
+                }
+                int end = nameStart;
+                while (end < length && isNameChar(query.charAt(end))) {
+                    end++;
+                }
+                if (end > nameStart) {
+                    // The bind variable of @@name is called @name
+                    String name = query.substring(start + 1, end);
+                    Integer index = scan.indexes.get(name);
+                    if (index == null) {
+                        index = scan.names.size();
+                        scan.indexes.put(name, index);
+                        scan.names.add(name);
+                    }
+                    scan.references.add(new int[]{start, end, index});
+                }
+                // A collection parameter takes the place of a collection name
+                scan.name("", query, end);
+                afterOperand = true;
+                i = Math.max(end, i + 1);
+                scan.normalized.append(query, start, i);
+            } else if (c == '?') {
+                boolean arrayFilter = previous == '[' && isArrayFilter(query, i + 1);
+                boolean elvis = i + 1 < length && query.charAt(i + 1) == ':';
+                boolean placeholder = !afterOperand && !arrayFilter && !elvis;
+                if (placeholder) {
+                    scan.placeholders.add(i);
+                }
+                afterOperand = placeholder;
+                scan.collectionContext = 0;
+                i++;
+                scan.normalized.append(c);
+            } else if (isNameChar(c)) {
+                while (i < length && isNameChar(query.charAt(i))) {
+                    i++;
+                }
+                String word = query.substring(start, i);
+                // Attribute names (after a dot) are operands whatever they are called
+                afterOperand = previous == '.' || !OPERATOR_KEYWORDS.contains(word.toUpperCase(Locale.ROOT));
+                scan.word(word, query, i, previous);
+                scan.normalized.append(query, start, i);
+            } else if (Character.isWhitespace(c)) {
+                i++;
+                scan.space();
+            } else {
+                if (c == ':' && i + 1 < length && query.charAt(i + 1) == ':') {
+                    // User-defined function (namespace::name)
+                    scan.deterministic = false;
+                }
+                if (c != ',' || scan.collectionContext != 2) {
+                    scan.collectionContext = 0;
+                }
+                if (c == '(') {
+                    // A parenthesis right after a name opens the arguments of a function call
+                    scan.calls.push(afterOperand && isNameChar(previous));
+                } else if (c == ')' && !scan.calls.isEmpty()) {
+                    scan.calls.pop();
+                }
+                afterOperand = c == ')' || c == ']' || c == '}';
+                i++;
+                scan.normalized.append(c);
+            }
+            if (!Character.isWhitespace(c)) {
+                previous = c;
+            }
+        }
+        return new ArangoDbQueryTemplate(scan);
+    }
+
+    /**
+     * Tells whether the text after [? is the rest of an array filter: a quantifier or FILTER.
+     */
+    private static boolean isArrayFilter(String query, int from) {
+        int i = from;
+        while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+            i++;
+        }
+        int start = i;
+        while (i < query.length() && isNameChar(query.charAt(i))) {
+            i++;
+        }
+        if (i == start) {
+            return false;
+        }
+        String word = query.substring(start, i);
+        return Character.isDigit(word.charAt(0)) || ARRAY_FILTER_WORDS.contains(word.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the offset just after the literal or quoted name starting at start.
+     */
+    private static int skipQuoted(String query, int start, char quote) {
+        int i = start + 1;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return query.length();
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * State of a scan in progress.
+     */
+    private static final class Scan {
+        private final String query;
+        private final boolean positional;
+        private final StringBuilder normalized;
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<int[]> references = new ArrayList<>();
+        private final List<Integer> placeholders = new ArrayList<>();
+        private final Set<String> collections = new LinkedHashSet<>();
+        private boolean indirectCollections = false;
+        private boolean write = false;
+        private boolean deterministic = true;
+        // 0: no collection expected, 1: one collection name expected, 2: a list of names (WITH)
+        private int collectionContext = 0;
+        // For each open parenthesis, whether it holds the arguments of a function call
+        private final Deque<Boolean> calls = new ArrayDeque<>();
+        // Whether the collection list being read belongs to a WITH that starts the query
+        private boolean leadingWith = false;
+        private int withClauseEnd = 0;
+
+        private Scan(String query, boolean positional) {
+            this.query = query;
+            this.positional = positional;
+            this.normalized = new StringBuilder(query.length());
+        }
+
+        private void space() {
+            if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+
+        private void word(String word, String query, int end, char previous) {
+            if (collectionContext != 0) {
+                name(word, query, end);
+                return;
+            }
+            int nextOffset = skipWhitespace(query, end);
+            char next = nextOffset < query.length() ? query.charAt(nextOffset) : ' ';
+            // Attribute names and object keys are not keywords
+            if (previous == '.' || (next == ':' && (nextOffset + 1 >= query.length() || query.charAt(nextOffset + 1) != ':'))) {
+                return;
+            }
+            String keyword = word.toUpperCase(Locale.ROOT);
+            if ((previous == '(' || previous == ',') && (next == ')' || next == ',') && Boolean.TRUE.equals(calls.peek())
+                    && !Character.isDigit(word.charAt(0)) && !LITERALS.contains(keyword)) {
+                // A bare name passed to a function, as in LENGTH(orders), may be a collection
+                collections.add(word);
+                return;
+            }
+            if (word.length() > 16) {
+                return;
+            }
+            if (COLLECTION_KEYWORDS.contains(keyword)) {
+                collectionContext = "WITH".equals(keyword) ? 2 : 1;
+                leadingWith = collectionContext == 2 && normalized.length() == 0;
+            } else if (WRITE_KEYWORDS.contains(keyword)) {
+                write = true;
+            } else if (INDIRECT_KEYWORDS.contains(keyword)
+                    && !("ANY".equals(keyword) && isArrayOperator(query, nextOffset, previous))) {
+                indirectCollections = true;
+            }
+            if (next == '(' && NONDETERMINISTIC_FUNCTIONS.contains(keyword)) {
+                deterministic = false;
+            }
+        }
+
+        /**
+         * Records a name read where a collection was expected.
+         */
+        private void name(String name, String query, int end) {
+            if (collectionContext == 0) {
+                return;
+            }
+            char next = nextSignificant(query, end);
+            // Function calls, attribute paths and keywords are not collection names
+            if (next != '(' && next != '.' && next != '[' && !name.isEmpty()) {
+                collections.add(name);
+            }
+            if (collectionContext != 2 || next != ',') {
+                if (leadingWith) {
+                    withClauseEnd = end;
+                    leadingWith = false;
+                }
+                collectionContext = 0;
+            }
+        }
+
+        /**
+         * Tells whether ANY is used as an array quantifier rather than as a traversal direction:
+         * after [? or before a comparison operator, IN or NOT.
+         */
+        private static boolean isArrayOperator(String query, int next, char previous) {
+            if (previous == '?' || next >= query.length()) {
+                return true;
+            }
+            char c = query.charAt(next);
+            if (c == '=' || c == '!' || c == '<' || c == '>') {
+                return true;
+            }
+            int end = next;
+            while (end < query.length() && isNameChar(query.charAt(end))) {
+                end++;
+            }
+            String word = query.substring(next, end).toUpperCase(Locale.ROOT);
+            return "IN".equals(word) || "NOT".equals(word);
+        }
+
+        private static int skipWhitespace(String query, int from) {
+            int i = from;
+            while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private static char nextSignificant(String query, int from) {
+            for (int i = from; i < query.length(); i++) {
+                if (!Character.isWhitespace(query.charAt(i))) {
+                    return query.charAt(i);
+                }
+            }
+            return ' ';
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.iotahoe.jdbc;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Client-side cache of read query results.
+ * Results are keyed by database, normalized query text and bind variables and stored as rows in
+ * column order. Entries expire after a time to live and the least recently used ones are evicted
+ * when the estimated size of all entries exceeds the memory budget. Every data-modification query
+ * sent through the driver invalidates the entries of the collections it names; entries of queries
+ * reading collections they do not name (graphs, views) are invalidated by every write.
+ * Writes made by other clients are only noticed when the entries expire.
+ */
+public final class ArangoDbResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbResultCache.class);
+
+    private final long maxBytes;
+    private final long ttlNanos;
+    // Least recently used first; guarded by this
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    // Incremented by every invalidation, results of queries that overlapped one are not stored
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    ArangoDbResultCache(long maxBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Returns the cached result for the key, or null if there is no live entry.
+     */
+    synchronized Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns the largest result that is worth caching.
+     */
+    long getMaxEntryBytes() {
+        return maxBytes / 4;
+    }
+
+    /**
+     * Stores a result read by a query that started when the cache was at the given generation.
+     * The result is dropped if an invalidation happened since, as it may predate that write.
+     */
+    synchronized void put(Key key, String[] columnNames, int[] columnTypes, List<Object[]> rows, Set<String> collections, long bytes, long startGeneration) {
+        if (generation.get() != startGeneration || bytes > getMaxEntryBytes()) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(columnNames, columnTypes, Collections.unmodifiableList(rows), collections, bytes, System.nanoTime() + ttlNanos));
+        size += bytes;
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (size > maxBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            size -= evicted.bytes;
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Drops the entries that read any of the collections, or every entry if collections is null.
+     */
+    void invalidate(Set<String> collections) {
+        generation.incrementAndGet();
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (collections == null || entry.collections == null || !Collections.disjoint(entry.collections, collections)) {
+                    iterator.remove();
+                    size -= entry.bytes;
+                    removed++;
+                }
+            }
+        }
+        invalidations.addAndGet(removed);
+        LOGGER.debug("invalidate(collections={}) - {} entries removed", collections, removed);
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        invalidate(null);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries removed to stay within the memory budget.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of entries removed because a write touched their collections.
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated memory used by the cached rows, in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxBytes;
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            size -= removed.bytes;
+        }
+    }
+
+    /**
+     * Estimates the heap used by a decoded row.
+     */
+    static long estimateRowSize(Object[] values) {
+        long bytes = 16 + 8L * values.length;
+        for (Object value : values) {
+            bytes += estimateSize(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the heap used by a decoded value.
+     */
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 8;
+        } else if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return 24;
+        } else if (value instanceof Map) {
+            long bytes = 64;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 32 + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return bytes;
+        } else if (value instanceof Collection) {
+            long bytes = 40;
+            for (Object element : (Collection<?>) value) {
+                bytes += 8 + estimateSize(element);
+            }
+            return bytes;
+        }
+        return 64;
+    }
+
+    /**
+     * Identifies a result by database, normalized query text and bind variables.
+     * Bind values are copied deeply, so that later changes by the caller do not change the key,
+     * with collections and arrays copied as lists, since they are all sent as JSON arrays.
+     */
+    static final class Key {
+        private final String database;
+        private final String query;
+        private final Map<String, Object> bindVars;
+        private final int hash;
+
+        Key(String database, String query, Map<String, Object> bindVars) {
+            this.database = database;
+            this.query = query;
+            this.bindVars = bindVars != null ? copyMap(bindVars) : Collections.emptyMap();
+            this.hash = 31 * (31 * database.hashCode() + query.hashCode()) + this.bindVars.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && database.equals(other.database) && query.equals(other.query) && bindVars.equals(other.bindVars);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static <K> Map<K, Object> copyMap(Map<K, ?> map) {
+            Map<K, Object> copy = new HashMap<>(map.size() * 2);
+            for (Map.Entry<K, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+
+        private static Object copy(Object value) {
+            if (value instanceof Map) {
+                return copyMap((Map<?, ?>) value);
+            } else if (value instanceof Collection) {
+                List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+                for (Object element : (Collection<?>) value) {
+                    copy.add(copy(element));
+                }
+                return copy;
+            } else if (value != null && value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                List<Object> copy = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    copy.add(copy(Array.get(value, i)));
+                }
+                return copy;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A cached result: the columns and rows in column order, which must not be modified.
+     */
+    static final class Entry {
+        final String[] columnNames;
+        final int[] columnTypes;
+        final List<Object[]> rows;
+        // Collections read by the query, null if unknown
+        final Set<String> collections;
+        final long bytes;
+        final long expiresAt;
+
+        private Entry(String[] columnNames, int[] columnTypes, List<Object[]> rows, Set<String> collections, long bytes, long expiresAt) {
+            this.columnNames = columnNames;
+            this.columnTypes = columnTypes;
+            this.rows = rows;
+            this.collections = collections;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
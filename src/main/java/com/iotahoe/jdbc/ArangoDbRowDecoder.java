@@ -0,0 +1,277 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.internal.serde.InternalSerde;
+import com.arangodb.util.RawBytes;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the rows of one result into flat arrays of values that share a column dictionary.
+ * Every attribute name met in the result gets a slot, in order of first appearance, and a row
+ * holds the value of each of its attributes at that slot: names are kept once per result instead
+ * of once per row, and values are read by position. Undecoded JSON rows are parsed straight into
+ * their slots; rows already decoded into documents or maps are copied into them. Nested objects
+ * and arrays are decoded as LinkedHashMap and ArrayList, like the driver does. JSON rows can also
+ * be decoded lazily: their attributes are located once, and each value is only decoded when asked for.
+ * A decoder belongs to a single result set and is not thread-safe.
+ */
+final class ArangoDbRowDecoder {
+    // Canonicalizes the attribute names it parses, so that equal names share one string
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final InternalSerde serde;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Creates a decoder; rows that are not JSON documents are decoded with the serde, if any.
+     */
+    ArangoDbRowDecoder(InternalSerde serde) {
+        this.serde = serde;
+    }
+
+    /**
+     * Returns the number of distinct attributes decoded so far.
+     */
+    int getColumnCount() {
+        return names.size();
+    }
+
+    String getColumnName(int slot) {
+        return names.get(slot);
+    }
+
+    /**
+     * Returns the slot of the attribute, or -1 if no row decoded so far has it.
+     */
+    int getSlot(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * Decodes a row into its slots. The array is as long as the dictionary was after decoding the
+     * row, slots of attributes the row does not have hold null.
+     */
+    Object[] decode(Object row) throws SQLException {
+        if (row instanceof RawBytes) {
+            return decode(((RawBytes) row).get());
+        } else if (row instanceof BaseDocument) {
+            return decode(((BaseDocument) row).getProperties());
+        } else if (row instanceof Map) {
+            return decode((Map<?, ?>) row);
+        }
+        throw new SQLException("Row data is not a map or base document");
+    }
+
+    private Object[] decode(byte[] bytes) throws SQLException {
+        if (!isJsonObject(bytes)) {
+            return decode(deserialize(bytes));
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            parser.nextToken();
+            Object[] row = new Object[names.size()];
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int slot = slot(parser.currentName());
+                parser.nextToken();
+                if (slot >= row.length) {
+                    row = Arrays.copyOf(row, names.size());
+                }
+                row[slot] = readValue(parser);
+            }
+            return row;
+        } catch (IOException e) {
+            throw new SQLException("Failed to decode row: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Locates the values of the top-level attributes of a JSON document without decoding them.
+     * starts[slot] and ends[slot] are set to the offsets of the value of each attribute whose
+     * slot is below starts.length, starts[slot] to -1 for the slots the row does not have.
+     * Attributes the dictionary does not know are skipped and do not get a slot.
+     */
+    void index(byte[] bytes, int[] starts, int[] ends) throws SQLException {
+        Arrays.fill(starts, -1);
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int slot = getSlot(parser.currentName());
+                parser.nextToken();
+                if (slot >= 0 && slot < starts.length) {
+                    starts[slot] = (int) parser.currentTokenLocation().getByteOffset();
+                    // A number is only known to end where the next token starts, the others end by themselves
+                    ends[slot] = parser.currentToken().isNumeric() ? (int) parser.currentLocation().getByteOffset() : bytes.length;
+                }
+                // Steps over nested values; strings are skipped without being decoded
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to decode row: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes the value between the offsets of a JSON row, as located by index().
+     */
+    Object decodeValue(byte[] bytes, int start, int end) throws SQLException {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes, start, end - start)) {
+            parser.nextToken();
+            return readValue(parser);
+        } catch (IOException e) {
+            throw new SQLException("Failed to decode row: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes a JSON document into a row of column builders, one per slot below columns.length.
+     * Numbers and strings are stored without being boxed; attributes the dictionary does not know
+     * are skipped.
+     */
+    void decodeInto(byte[] bytes, ArangoDbColumnVector.Builder[] columns, int row) throws SQLException {
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                int slot = getSlot(parser.currentName());
+                JsonToken token = parser.nextToken();
+                if (slot < 0 || slot >= columns.length) {
+                    parser.skipChildren();
+                    continue;
+                }
+                ArangoDbColumnVector.Builder column = columns[slot];
+                switch (token) {
+                    case VALUE_NUMBER_INT:
+                        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                            column.setObject(row, parser.getBigIntegerValue());
+                        } else {
+                            column.setLong(row, parser.getLongValue());
+                        }
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        column.setDouble(row, parser.getDoubleValue());
+                        break;
+                    case VALUE_STRING:
+                        column.setString(row, parser.getText());
+                        break;
+                    case VALUE_NULL:
+                        column.clear(row);
+                        break;
+                    default:
+                        column.setObject(row, readValue(parser));
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to decode row: " + e.getMessage(), e);
+        }
+    }
+
+    private Object[] decode(Map<?, ?> properties) {
+        Object[] row = new Object[names.size()];
+        for (Map.Entry<?, ?> entry : properties.entrySet()) {
+            int slot = slot(String.valueOf(entry.getKey()));
+            if (slot >= row.length) {
+                row = Arrays.copyOf(row, names.size());
+            }
+            row[slot] = entry.getValue();
+        }
+        return row;
+    }
+
+    private int slot(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = names.size();
+            names.add(name);
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Reads the value at the current token, numbers as Integer, Long, BigInteger or Double.
+     */
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                Map<String, Object> object = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    object.put(name, readValue(parser));
+                }
+                return object;
+            case START_ARRAY:
+                List<Object> array = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    array.add(readValue(parser));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private Map<?, ?> deserialize(byte[] bytes) throws SQLException {
+        return deserialize(bytes, serde);
+    }
+
+    /**
+     * Decodes an undecoded row into a map of its attributes, without a dictionary. Unlike the
+     * other methods it may be called from any thread.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> decodeDocument(byte[] bytes, InternalSerde serde) throws SQLException {
+        if (!isJsonObject(bytes)) {
+            return (Map<String, Object>) deserialize(bytes, serde);
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+            parser.nextToken();
+            return (Map<String, Object>) readValue(parser);
+        } catch (IOException e) {
+            throw new SQLException("Failed to decode row: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<?, ?> deserialize(byte[] bytes, InternalSerde serde) throws SQLException {
+        if (serde == null) {
+            throw new SQLException("Row data is not a JSON document");
+        }
+        try {
+            return serde.deserializeUserData(bytes, Map.class);
+        } catch (RuntimeException e) {
+            throw new SQLException("Failed to decode row: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Tells whether the undecoded row is a JSON document, rather than another JSON value or VelocyPack.
+     */
+    static boolean isJsonObject(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.entity.BaseDocument;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flow.Publisher of the rows of a query, with the subscriber's demand driving cursor batch fetching.
+ * The query is sent on the first request(n). Rows are emitted from the batch at hand, and the
+ * next batch is requested from the server once the outstanding demand exceeds the rows left in
+ * the current one; at most one batch request is in flight, so memory stays bounded by two
+ * batches whatever the speed of the subscriber. Batches arrive on the common fork-join pool.
+ * Every batch request is bounded by the statement's query timeout and given up by its cancel().
+ */
+final class ArangoDbRowPublisher implements Flow.Publisher<Map<String, Object>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbRowPublisher.class);
+
+    private final ArangoDbStatement statement;
+    private final String aql;
+    private final Map<String, Object> bindVars;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    ArangoDbRowPublisher(ArangoDbStatement statement, String aql, Map<String, Object> bindVars) {
+        this.statement = statement;
+        this.aql = aql;
+        this.bindVars = bindVars;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Map<String, Object>> subscriber) {
+        LOGGER.debug("subscribe(subscriber={})", subscriber);
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The rows of a query can only be subscribed to once"));
+            return;
+        }
+        subscriber.onSubscribe(new RowSubscription(subscriber));
+    }
+
+    /**
+     * Serializes all work on the subscription through drain(): signals to the subscriber, and the
+     * fields below that are not volatile, are only touched by the thread that runs it.
+     */
+    private final class RowSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Map<String, Object>> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger work = new AtomicInteger();
+        // Completed when the subscription ends, marks the statement as free again
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile boolean cancelled = false;
+        private volatile Throwable failure;
+        // Batch handed over by the request that fetched it
+        private volatile ArangoCursorAsync<BaseDocument> received;
+        private boolean started = false;
+        private boolean done = false;
+        private long maxRows = 0;
+        private long emitted = 0;
+        private ArangoCursorAsync<BaseDocument> batch;
+        private List<BaseDocument> rows;
+        private int position = 0;
+        // Request for the first or the next batch, null when none is in flight
+        private CompletableFuture<ArangoCursorAsync<BaseDocument>> fetching;
+
+        RowSubscription(Flow.Subscriber<? super Map<String, Object>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Requested rows must be positive: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            LOGGER.debug("cancel()");
+            cancelled = true;
+            drain();
+        }
+
+        private void onBatch(ArangoCursorAsync<BaseDocument> next, Throwable e) {
+            if (e != null) {
+                failure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            } else {
+                received = next;
+            }
+            drain();
+        }
+
+        private void drain() {
+            if (work.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done) {
+                    step();
+                }
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void step() {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            Throwable error = failure;
+            if (error != null) {
+                finish();
+                if (!(error instanceof SQLException) && !(error instanceof IllegalArgumentException)) {
+                    error = new SQLException("Failed to fetch rows: " + error.getMessage(), error);
+                }
+                subscriber.onError(error);
+                return;
+            }
+            if (!started) {
+                if (demand.get() == 0) {
+                    return;
+                }
+                started = true;
+                try {
+                    maxRows = statement.getMaxRows();
+                    fetching = statement.submitStream(aql, bindVars, completion);
+                } catch (SQLException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+                fetching.whenCompleteAsync(this::onBatch);
+                return;
+            }
+            ArangoCursorAsync<BaseDocument> next = received;
+            if (next != null) {
+                received = null;
+                fetching = null;
+                batch = next;
+                rows = next.getResult();
+                position = 0;
+            }
+            if (batch == null) {
+                return;
+            }
+            long requested = demand.get();
+            long sent = 0;
+            while (sent < requested && position < rows.size() && (maxRows == 0 || emitted < maxRows) && !cancelled) {
+                try {
+                    subscriber.onNext(rows.get(position++).getProperties());
+                } catch (RuntimeException e) {
+                    // A subscriber that throws is treated as having cancelled (Reactive Streams rule 2.13)
+                    LOGGER.warn("Subscriber {} failed in onNext, cancelling the subscription", subscriber, e);
+                    cancelled = true;
+                    finish();
+                    return;
+                }
+                emitted++;
+                sent++;
+            }
+            if (sent > 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-sent);
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            boolean more = Boolean.TRUE.equals(batch.hasMore());
+            if ((maxRows > 0 && emitted >= maxRows) || (position >= rows.size() && !more)) {
+                finish();
+                subscriber.onComplete();
+                return;
+            }
+            // Fetch ahead only as far as the subscriber has asked for
+            if (more && fetching == null && demand.get() > rows.size() - position) {
+                fetching = statement.submitNextBatch(batch);
+                fetching.whenCompleteAsync(this::onBatch);
+            }
+        }
+
+        /**
+         * Ends the subscription and releases the server cursor, once the batch in flight (if any) is in.
+         */
+        private void finish() {
+            done = true;
+            rows = null;
+            if (fetching != null) {
+                fetching.thenAccept(ArangoDbAsyncCursor::deleteCursor);
+                fetching = null;
+            } else if (batch != null) {
+                ArangoDbAsyncCursor.deleteCursor(batch);
+            }
+            batch = null;
+            completion.complete(null);
+        }
+    }
+}
@@ -1,10 +1,37 @@
 package com.iotahoe.jdbc;
 
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.ArangoDBException;
 import com.arangodb.ArangoDatabase;
 import com.arangodb.entity.BaseDocument;
 import com.arangodb.ArangoCursor;
+import com.arangodb.entity.CursorStats;
+import com.arangodb.entity.QueryEntity;
+import com.arangodb.model.AqlQueryOptions;
+import com.arangodb.util.RawBytes;
 
+import java.io.IOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,12 +39,37 @@ import org.slf4j.LoggerFactory;
  * ArangoDB JDBC Statement implementation.
  * This class implements the java.sql.Statement interface for ArangoDB.
  */
-public class ArangoDbStatement implements Statement {
+public class ArangoDbStatement implements Statement, ArangoDbAsyncStatement {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(ArangoDbStatement.class);
+    // SQLState reported when a query is cancelled
+    private static final String SQL_STATE_QUERY_CANCELLED = "57014";
+    // Seconds of clock difference tolerated when matching a query in the server's running queries list
+    private static final double RUNNING_QUERY_MATCH_SLACK = 1.0;
     protected final ArangoDbConnection connection;
     protected ResultSet currentResultSet;
-    private boolean closed = false;
+    // Connection handed to the application when this statement was created through a pool handle
+    protected Connection logicalConnection;
+    // Result sets of this statement that have not been closed yet
+    private final Set<ResultSet> openResultSets = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+    private boolean poolable = false;
+    private boolean closeOnCompletion = false;
+    private int updateCount = -1;
+    // Query this statement is running until its cursor is exhausted or closed, for cancel() and the timeout
+    private final AtomicReference<RunningQuery> runningQuery = new AtomicReference<>();
+    // Result of the last asynchronous execution, a statement runs one query at a time
+    private volatile CompletableFuture<?> pendingQuery;
+    // Execution statistics and result cache flag of the last query, read from its first response
+    private volatile CursorStats lastQueryStats;
+    private volatile boolean lastResultCached;
+    // Queries collected by addBatch(String)
+    private final List<String> batchQueries = new ArrayList<>();
+    // Queries sent by the running executeBatch(), cancelled together by cancel()
+    private final List<RunningQuery> runningBatch = new CopyOnWriteArrayList<>();
+    private volatile boolean batchCancelled;
+    // Bulk export tuning of the query options, see setExportMode()
+    private boolean exportMode;
     private int maxRows = 0;
     private int queryTimeout = 0;
     private int fetchSize = 0;
@@ -29,6 +81,8 @@ public class ArangoDbStatement implements Statement {
     public ArangoDbStatement(ArangoDbConnection connection) {
         LOGGER.debug("ArangoDbStatement(connection={})", new Object[]{connection});
         this.connection = connection;
+        this.exportMode = connection.isExportMode();
+        connection.statementOpened(this);
     }
 
     @Override
@@ -36,10 +90,10 @@ public class ArangoDbStatement implements Statement {
         LOGGER.debug("executeQuery(sql={})", sql);
         checkClosed();
         try {
-            ArangoDatabase database = connection.getDatabase();
-            ArangoCursor<BaseDocument> cursor = database.query(sql, BaseDocument.class, null, null );
-            currentResultSet = new ArangoDbCursorResultSet<BaseDocument>(this, cursor);
+            currentResultSet = executeCursorQuery(sql, null);
             return currentResultSet;
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Failed to execute query: " + sql, e);
         }
@@ -50,25 +104,96 @@ public class ArangoDbStatement implements Statement {
         LOGGER.debug("executeUpdate(sql={})", sql);
         checkClosed();
         try {
-            ArangoDatabase database = connection.getDatabase();
-            try(ArangoCursor<Object> cursor = database.query(sql,Object.class,  null, null)){
-                if (cursor.hasNext()){
-                    return cursor.getCount();
-                }
-                return 0;
-            }
+            return executeUpdateQuery(sql, null);
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Failed to execute update: " + sql, e);
         }
     }
 
+    @Override
+    public CompletableFuture<ResultSet> executeQueryAsync(String sql) {
+        LOGGER.debug("executeQueryAsync(sql={})", sql);
+        try {
+            checkClosed();
+            return executeCursorQueryAsync(sql, null);
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new SQLException("Failed to execute query: " + sql, e));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> executeUpdateAsync(String sql) {
+        LOGGER.debug("executeUpdateAsync(sql={})", sql);
+        try {
+            checkClosed();
+            return executeUpdateQueryAsync(sql, null);
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new SQLException("Failed to execute update: " + sql, e));
+        }
+    }
+
+    @Override
+    public Flow.Publisher<Map<String, Object>> publishQuery(String sql) throws SQLException {
+        LOGGER.debug("publishQuery(sql={})", sql);
+        checkClosed();
+        return new ArangoDbRowPublisher(this, sql, null);
+    }
+
+    /**
+     * Reads every document of a collection through several concurrent cursors merged into one
+     * result set, for exports and other full scans. On a cluster, an unordered scan gives each
+     * cursor a share of the shards; otherwise the collection is split into ranges of _key of
+     * about the same size, found through the primary index. An ordered scan returns the
+     * documents in _key order, reading the ranges concurrently and returning them one after
+     * the other; an unordered scan returns batches as they arrive. fetchSize, maxRows and the
+     * query timeout apply, and cancel() interrupts the wait for the next batch.
+     * @param collection the collection to read
+     * @param parallelism the maximum number of concurrent cursors
+     * @param ordered whether the documents are returned in _key order
+     */
+    public ResultSet executeScan(String collection, int parallelism, boolean ordered) throws SQLException {
+        LOGGER.debug("executeScan(collection={}, parallelism={}, ordered={})", new Object[]{collection, parallelism, ordered});
+        checkClosed();
+        if (parallelism < 1) {
+            throw new SQLException("parallelism must be >= 1: " + parallelism);
+        }
+        try {
+            startExecution();
+            RunningQuery query = RunningQuery.scan();
+            runningQuery.set(query);
+            ArangoDbCollectionScan scan;
+            try {
+                scan = ArangoDbCollectionScan.open(this, query, collection, parallelism, ordered);
+            } catch (RuntimeException e) {
+                queryFinished(query);
+                throw e;
+            }
+            currentResultSet = new ArangoDbCursorResultSet<BaseDocument>(this, scan, getBatchSize(), maxRows);
+            return currentResultSet;
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Failed to scan collection: " + collection, e);
+        }
+    }
+
     @Override
     public void close() throws SQLException {
         LOGGER.debug("close()");
-        if (currentResultSet != null) {
-            currentResultSet.close();
+        if (closed) {
+            return;
         }
         closed = true;
+        for (ResultSet resultSet : new ArrayList<>(openResultSets)) {
+            resultSet.close();
+        }
+        connection.statementClosed(this);
     }
 
     @Override
@@ -94,6 +219,9 @@ public class ArangoDbStatement implements Statement {
     public void setMaxRows(int max) throws SQLException {
         LOGGER.debug("setMaxRows(max={})", max);
         checkClosed();
+        if (max < 0) {
+            throw new SQLException("maxRows must be >= 0: " + max);
+        }
         this.maxRows = max;
     }
 
@@ -110,7 +238,11 @@ public class ArangoDbStatement implements Statement {
 
     @Override
     public void setQueryTimeout(int seconds) throws SQLException {
+        LOGGER.debug("setQueryTimeout(seconds={})", seconds);
         checkClosed();
+        if (seconds < 0) {
+            throw new SQLException("Query timeout must be >= 0: " + seconds);
+        }
         this.queryTimeout = seconds;
     }
 
@@ -118,7 +250,34 @@ public class ArangoDbStatement implements Statement {
     public void cancel() throws SQLException {
         LOGGER.debug("cancel()");
         checkClosed();
-        // Not supported in ArangoDB
+        cancelBatch();
+        RunningQuery query = runningQuery.get();
+        if (query == null) {
+            return;
+        }
+        query.cancelled = true;
+        CompletableFuture<?> waiter = query.waiter;
+        if (waiter != null && waiter.cancel(false)) {
+            killQuery(query);
+        } else if (query.cursor != null || query.partitions != null) {
+            // Between two batches: the server cursors are known to be ours and can be deleted
+            killQuery(query);
+        }
+    }
+
+    /**
+     * Stops executeBatch() from sending more queries and kills those still running.
+     */
+    private void cancelBatch() {
+        // Reset by the next executeBatch(), so it only affects a batch that is running
+        batchCancelled = true;
+        for (RunningQuery query : runningBatch) {
+            query.cancelled = true;
+            CompletableFuture<?> waiter = query.waiter;
+            if (waiter != null && waiter.cancel(false)) {
+                killQuery(query);
+            }
+        }
     }
 
     @Override
@@ -143,10 +302,10 @@ public class ArangoDbStatement implements Statement {
         LOGGER.debug("execute(sql={})", sql);
         checkClosed();
         try {
-            ArangoDatabase database = connection.getDatabase();
-            ArangoCursor<BaseDocument> cursor = database.query(sql, BaseDocument.class, null, null);
-            currentResultSet = new ArangoDbCursorResultSet<BaseDocument>(this, cursor);
+            currentResultSet = executeCursorQuery(sql, null);
             return true; // Always returns a result set
+        } catch (SQLException e) {
+            throw e;
         } catch (Exception e) {
             throw new SQLException("Failed to execute: " + sql, e);
         }
@@ -161,7 +320,11 @@ public class ArangoDbStatement implements Statement {
     @Override
     public int getUpdateCount() throws SQLException {
         checkClosed();
-        return -1; // No update count available
+        return updateCount; // -1 unless the last execution was an update
+    }
+
+    void setUpdateCount(int updateCount) {
+        this.updateCount = updateCount;
     }
 
     @Override
@@ -186,7 +349,11 @@ public class ArangoDbStatement implements Statement {
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
+        LOGGER.debug("setFetchSize(rows={})", rows);
         checkClosed();
+        if (rows < 0) {
+            throw new SQLException("Fetch size must be >= 0: " + rows);
+        }
         this.fetchSize = rows;
     }
 
@@ -210,26 +377,148 @@ public class ArangoDbStatement implements Statement {
 
     @Override
     public void addBatch(String sql) throws SQLException {
+        LOGGER.debug("addBatch(sql={})", sql);
         checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations not supported");
+        batchQueries.add(sql);
     }
 
     @Override
     public void clearBatch() throws SQLException {
+        LOGGER.debug("clearBatch()");
         checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations not supported");
+        batchQueries.clear();
     }
 
+    /**
+     * Executes the collected queries. They are submitted without waiting for each other, with at
+     * most maxConnections in flight so that they are spread over the client's connection pool,
+     * so the queries of a batch must not depend on each other's effects. Update counts are
+     * returned in the order the queries were added. All queries are attempted; if any of them
+     * failed a BatchUpdateException carries EXECUTE_FAILED for those. cancel() stops the batch:
+     * queries not sent yet are not sent and those still running are killed, all of them fail.
+     */
     @Override
     public int[] executeBatch() throws SQLException {
+        LOGGER.debug("executeBatch()");
         checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations not supported");
+        List<String> queries = new ArrayList<>(batchQueries);
+        batchQueries.clear();
+        Semaphore inFlight = new Semaphore(connection.getMaxConnections());
+        List<CompletableFuture<Integer>> results = new ArrayList<>(queries.size());
+        AqlQueryOptions options = createQueryOptions().count(false).batchSize(1);
+        runningBatch.clear();
+        batchCancelled = false;
+        // queryTimeout bounds the whole batch
+        long deadline = queryTimeout > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(queryTimeout) : 0;
+        boolean timedOut = false;
+        try {
+            for (String query : queries) {
+                if (deadline == 0) {
+                    inFlight.acquire();
+                } else if (!inFlight.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    timedOut = true;
+                    break;
+                }
+                if (batchCancelled) {
+                    inFlight.release();
+                    break;
+                }
+                CompletableFuture<Integer> sent;
+                try {
+                    sent = connection.getAsyncDatabase().query(query, Object.class, null, options)
+                            .thenApply(ArangoDbStatement::batchUpdateCount);
+                } catch (RuntimeException e) {
+                    sent = new CompletableFuture<>();
+                    sent.completeExceptionally(e);
+                }
+                sent.whenComplete((count, e) -> {
+                    inFlight.release();
+                    invalidateResultCache(query, null);
+                });
+                // cancel() completes this one, the request still releases its cursor when it returns
+                CompletableFuture<Integer> result = sent.thenApply(Function.identity());
+                RunningQuery running = new RunningQuery(query, null);
+                running.waiter = result;
+                runningBatch.add(running);
+                if (batchCancelled && result.cancel(false)) {
+                    killQuery(running);
+                }
+                results.add(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Queries not submitted yet are reported as failed below
+        }
+
+        int[] updateCounts = new int[queries.size()];
+        Throwable failure = null;
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                try {
+                    if (i >= results.size() && timedOut) {
+                        throw batchTimeout(updateCounts, i);
+                    }
+                    if (i >= results.size()) {
+                        throw new ExecutionException(new SQLException(batchCancelled
+                                ? "Batch was cancelled before the query was sent"
+                                : "Batch was interrupted before the query was sent"));
+                    }
+                    updateCounts[i] = deadline == 0 ? results.get(i).get()
+                            : results.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    throw batchTimeout(updateCounts, i);
+                } catch (CancellationException e) {
+                    updateCounts[i] = EXECUTE_FAILED;
+                    if (failure == null) {
+                        failure = new SQLException("Query was cancelled", SQL_STATE_QUERY_CANCELLED);
+                    }
+                } catch (ExecutionException e) {
+                    updateCounts[i] = EXECUTE_FAILED;
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    LOGGER.debug("executeBatch() - query {} failed: {}", i, e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    updateCounts[i] = EXECUTE_FAILED;
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            runningBatch.clear();
+        }
+        if (failure != null) {
+            throw new BatchUpdateException("Failed to execute batch: " + failure.getMessage(), updateCounts, failure);
+        }
+        return updateCounts;
+    }
+
+    /**
+     * Cancels the rest of a batch that ran out of time; the exception carries the update counts
+     * of the queries that completed before the first one still running.
+     */
+    private BatchUpdateException batchTimeout(int[] updateCounts, int completed) {
+        cancelBatch();
+        String message = "Batch did not complete within " + queryTimeout + " seconds";
+        return new BatchUpdateException(message, Arrays.copyOf(updateCounts, completed), new SQLTimeoutException(message));
+    }
+
+    /**
+     * Turns the first response of a batched query into its update count and releases the cursor.
+     */
+    private static int batchUpdateCount(ArangoCursorAsync<Object> cursor) {
+        if (Boolean.TRUE.equals(cursor.hasMore())) {
+            cursor.close();
+        }
+        return writesExecuted(cursor.getExtra() != null ? cursor.getExtra().getStats() : null);
     }
 
     @Override
     public Connection getConnection() throws SQLException {
         checkClosed();
-        return connection;
+        return logicalConnection != null ? logicalConnection : connection;
     }
 
     @Override
@@ -293,26 +582,27 @@ public class ArangoDbStatement implements Statement {
 
     @Override
     public void setPoolable(boolean poolable) throws SQLException {
+        LOGGER.debug("setPoolable(poolable={})", poolable);
         checkClosed();
-        // Not supported
+        this.poolable = poolable;
     }
 
     @Override
     public boolean isPoolable() throws SQLException {
         checkClosed();
-        return false;
+        return poolable;
     }
 
     @Override
     public void closeOnCompletion() throws SQLException {
         checkClosed();
-        // Not supported
+        this.closeOnCompletion = true;
     }
 
     @Override
     public boolean isCloseOnCompletion() throws SQLException {
         checkClosed();
-        return false;
+        return closeOnCompletion;
     }
 
     @Override
@@ -328,6 +618,696 @@ public class ArangoDbStatement implements Statement {
         return iface.isAssignableFrom(getClass());
     }
     
+    /**
+     * Switches this statement to or from export mode, for large scans that should not get in the
+     * way of other queries on the same servers. In export mode, queries read through result sets
+     * run as streaming cursors, so that results are produced as they are fetched instead of being
+     * built up on the coordinator; queries do not fill the RocksDB block cache with the data they read; they use
+     * large batches (the exportBatchSize property, unless a fetch size is set); and their cursors
+     * stay alive for exportCursorTtl seconds between fetches. Results are neither cached nor
+     * coalesced. The default comes from the exportMode connection property.
+     */
+    public void setExportMode(boolean exportMode) throws SQLException {
+        LOGGER.debug("setExportMode(exportMode={})", exportMode);
+        checkClosed();
+        this.exportMode = exportMode;
+    }
+
+    public boolean isExportMode() throws SQLException {
+        checkClosed();
+        return exportMode;
+    }
+
+    /**
+     * Returns the number of rows to request per cursor batch: the fetch size if set,
+     * otherwise the server default (or the export batch size in export mode), never more than maxRows.
+     */
+    protected int getBatchSize() {
+        int defaultBatchSize = exportMode ? connection.getExportBatchSize() : ArangoDbConstants.CURSOR_BATCH_SIZE_DEFAULT;
+        int batchSize = fetchSize > 0 ? fetchSize : defaultBatchSize;
+        return maxRows > 0 ? Math.min(batchSize, maxRows) : batchSize;
+    }
+
+    /**
+     * Creates the AQL query options for this statement: fetchSize (bounded by maxRows) becomes
+     * the cursor batchSize and queryTimeout becomes the server-side maxRuntime. Export mode turns
+     * off the block cache fill and gives the cursor a long time to live.
+     */
+    protected AqlQueryOptions createQueryOptions() {
+        AqlQueryOptions options = new AqlQueryOptions();
+        if (fetchSize > 0 || maxRows > 0 || exportMode) {
+            options.batchSize(getBatchSize());
+        }
+        if (exportMode) {
+            options.fillBlockCache(false).ttl(connection.getExportCursorTtl());
+        }
+        if (queryTimeout > 0) {
+            options.maxRuntime((double) queryTimeout);
+        }
+        return options;
+    }
+
+    /**
+     * Creates the options of a query whose rows are read by the caller. Export mode runs it as a
+     * streaming cursor; queries whose rows are not read are not streamed, as the server would
+     * only carry out their writes as the rows are fetched.
+     */
+    protected AqlQueryOptions createReadOptions() {
+        AqlQueryOptions options = createQueryOptions();
+        if (exportMode) {
+            options.stream(true);
+        }
+        return options;
+    }
+
+    /**
+     * Runs a query and returns a streaming result set honouring fetchSize, maxRows and queryTimeout.
+     */
+    protected ResultSet executeCursorQuery(String aql, Map<String, Object> bindVars) throws SQLException {
+        startExecution();
+        ArangoDbResultCache cache = exportMode ? null : connection.getResultCache();
+        ArangoDbQueryCoalescer coalescer = maxRows == 0 && !exportMode ? connection.getQueryCoalescer() : null;
+        ArangoDbQueryTemplate template = null;
+        ArangoDbResultCache.Key key = null;
+        long cacheGeneration = 0;
+        if (cache != null || coalescer != null) {
+            template = ArangoDbQueryTemplate.of(aql);
+            if (template.isCacheable()) {
+                key = new ArangoDbResultCache.Key(connection.getDatabase().name(), template.getNormalizedQuery(), bindVars);
+            }
+        }
+        if (key != null && cache != null) {
+            ResultSet cached = cachedResultSet(cache, key);
+            if (cached != null) {
+                return cached;
+            }
+            cacheGeneration = cache.getGeneration();
+        }
+        if (key != null && coalescer != null) {
+            ArangoDbQueryTemplate queryTemplate = template;
+            ArangoDbResultCache.Key queryKey = key;
+            long generation = cacheGeneration;
+            List<ArangoDbCursorResultSet<?>> loaded = new ArrayList<>(1);
+            ArangoDbQueryCoalescer.Result result = coalescer.execute(key, queryTimeout, () -> {
+                ArangoDbCursorResultSet<?> resultSet = openCursorResultSet(aql, bindVars, cache, queryTemplate, queryKey, generation);
+                loaded.add(resultSet);
+                try {
+                    return resultSet.readAll(coalescer.getMaxResultBytes());
+                } catch (SQLException | RuntimeException e) {
+                    resultSet.close();
+                    throw e;
+                }
+            });
+            if (result == null) {
+                // Too large to be shared, this caller streams the rows of its own query
+                return loaded.get(0);
+            }
+            ResultSet resultSet = new ArangoDbListResultSet<Object>(this, result.columnNames, result.columnTypes, result.rows);
+            // Closed only now so that closeOnCompletion does not close this statement
+            for (ResultSet cursorResultSet : loaded) {
+                cursorResultSet.close();
+            }
+            return resultSet;
+        }
+        return openCursorResultSet(aql, bindVars, cache, template, key, cacheGeneration);
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #executeCursorQuery(String, Map)}. Results are served
+     * from and stored into the result cache, but asynchronous executions are not coalesced.
+     */
+    protected CompletableFuture<ResultSet> executeCursorQueryAsync(String aql, Map<String, Object> bindVars) throws SQLException {
+        startExecution();
+        ArangoDbResultCache cache = exportMode ? null : connection.getResultCache();
+        ArangoDbQueryTemplate template = cache != null ? ArangoDbQueryTemplate.of(aql) : null;
+        ArangoDbResultCache.Key key = template != null && template.isCacheable()
+                ? new ArangoDbResultCache.Key(connection.getDatabase().name(), template.getNormalizedQuery(), bindVars)
+                : null;
+        long cacheGeneration = 0;
+        if (key != null) {
+            ResultSet cached = cachedResultSet(cache, key);
+            if (cached != null) {
+                currentResultSet = cached;
+                return CompletableFuture.completedFuture(cached);
+            }
+            cacheGeneration = cache.getGeneration();
+        }
+        // Settings apply as they are when the query is submitted
+        long generation = cacheGeneration;
+        int batchSize = getBatchSize();
+        int rowLimit = maxRows;
+        CompletableFuture<ResultSet> result = runQueryAsync(aql, bindVars, getRowType(), createReadOptions(), getPrefetchBatches(1)).thenApply(cursor -> {
+            try {
+                if (closed) {
+                    cursor.close();
+                    throw new SQLException("Statement is closed");
+                }
+                ArangoDbCursorResultSet<?> resultSet = new ArangoDbCursorResultSet<>(this, cursor, batchSize, rowLimit);
+                if (key != null && rowLimit == 0) {
+                    resultSet.cacheInto(cache, key, template.getCollections(bindVars), generation);
+                }
+                currentResultSet = resultSet;
+                return resultSet;
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        pendingQuery = result;
+        return result;
+    }
+
+    /**
+     * Submits the query of a row publisher. The statement counts as running a query until the
+     * completion future is completed.
+     */
+    CompletableFuture<ArangoCursorAsync<BaseDocument>> submitStream(String aql, Map<String, Object> bindVars,
+            CompletableFuture<Void> completion) throws SQLException {
+        checkClosed();
+        startExecution();
+        pendingQuery = completion;
+        RunningQuery query = new RunningQuery(aql, bindVars);
+        completion.whenComplete((result, e) -> queryFinished(query));
+        return submitQuery(query, BaseDocument.class, createReadOptions());
+    }
+
+    /**
+     * Requests the next batch of the query of a row publisher, honouring cancel() and the query
+     * timeout like the first batch.
+     */
+    CompletableFuture<ArangoCursorAsync<BaseDocument>> submitNextBatch(ArangoCursorAsync<BaseDocument> batch) {
+        CompletableFuture<ArangoCursorAsync<BaseDocument>> request = batch.nextBatch();
+        RunningQuery query = runningQuery.get();
+        if (query == null) {
+            return request;
+        }
+        CompletableFuture<ArangoCursorAsync<BaseDocument>> waiter = waitFor(request);
+        query.waiter = waiter;
+        if (query.cancelled) {
+            waiter.cancel(false);
+        }
+        int timeout = queryTimeout;
+        if (timeout > 0) {
+            waiter.orTimeout(timeout, TimeUnit.SECONDS);
+        }
+        return waiter.handleAsync((next, failure) -> {
+            query.waiter = null;
+            if (failure != null) {
+                SQLException e = asyncFailure(failure, query, timeout);
+                queryFinished(query);
+                throw new CompletionException(e);
+            }
+            if (!Boolean.TRUE.equals(next.hasMore())) {
+                queryFinished(query);
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Resets the results of the previous execution before a new one.
+     */
+    private void startExecution() throws SQLException {
+        CompletableFuture<?> pending = pendingQuery;
+        if (pending != null && !pending.isDone()) {
+            throw new SQLException("Statement is still running an asynchronous query");
+        }
+        updateCount = -1;
+        // Only one result set per statement can be open, release the previous cursor first
+        if (currentResultSet != null) {
+            currentResultSet.close();
+            currentResultSet = null;
+        }
+    }
+
+    /**
+     * Returns a result set over the cached result for the key, or null if it is not cached.
+     */
+    private ResultSet cachedResultSet(ArangoDbResultCache cache, ArangoDbResultCache.Key key) throws SQLException {
+        ArangoDbResultCache.Entry cached = cache.get(key);
+        if (cached == null) {
+            return null;
+        }
+        LOGGER.debug("cachedResultSet() - served from the result cache");
+        List<Object[]> rows = maxRows > 0 && cached.rows.size() > maxRows ? cached.rows.subList(0, maxRows) : cached.rows;
+        return new ArangoDbListResultSet<Object>(this, cached.columnNames, cached.columnTypes, rows);
+    }
+
+    private ArangoDbCursorResultSet<?> openCursorResultSet(String aql, Map<String, Object> bindVars, ArangoDbResultCache cache,
+            ArangoDbQueryTemplate template, ArangoDbResultCache.Key key, long cacheGeneration) throws SQLException {
+        ArangoCursor<?> cursor = runQuery(aql, bindVars, getRowType(), createReadOptions(), getPrefetchBatches(0));
+        ArangoDbCursorResultSet<?> resultSet = new ArangoDbCursorResultSet<>(this, cursor, getBatchSize(), maxRows);
+        if (cache != null && key != null && maxRows == 0) {
+            resultSet.cacheInto(cache, key, template.getCollections(bindVars), cacheGeneration);
+        }
+        return resultSet;
+    }
+
+    /**
+     * Returns the type the rows of a cursor result set are received as. Rows are received undecoded
+     * and decoded by the result set into its slot arrays, unless a batch decoder parses them into
+     * maps on its worker threads first.
+     */
+    private Class<?> getRowType() {
+        return connection.getBatchDecoder() != null ? Map.class : RawBytes.class;
+    }
+
+    /**
+     * Invalidates the cached results of the collections a data-modification query names.
+     */
+    private void invalidateResultCache(String aql, Map<String, Object> bindVars) {
+        ArangoDbResultCache cache = connection.getResultCache();
+        if (cache != null) {
+            ArangoDbQueryTemplate template = ArangoDbQueryTemplate.of(aql);
+            if (template.isWrite()) {
+                cache.invalidate(template.getCollections(bindVars));
+            }
+        }
+    }
+
+    /**
+     * Runs a data-modification query and returns the number of documents it wrote.
+     * The query runs without a result count and with a single-row first batch, so rows produced
+     * by a RETURN clause are not shipped to the client; the update count comes from the
+     * writesExecuted statistic of the cursor.
+     */
+    protected int executeUpdateQuery(String aql, Map<String, Object> bindVars) throws SQLException {
+        startExecution();
+        AqlQueryOptions options = createQueryOptions().count(false).batchSize(1);
+        try (ArangoCursor<Object> cursor = runQuery(aql, bindVars, Object.class, options)) {
+            updateCount = writesExecuted(cursor.getStats());
+            return updateCount;
+        } catch (IOException e) {
+            throw new SQLException("Failed to close cursor", e);
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #executeUpdateQuery(String, Map)}.
+     */
+    protected CompletableFuture<Integer> executeUpdateQueryAsync(String aql, Map<String, Object> bindVars) throws SQLException {
+        startExecution();
+        AqlQueryOptions options = createQueryOptions().count(false).batchSize(1);
+        CompletableFuture<Integer> result = runQueryAsync(aql, bindVars, Object.class, options, 0).thenApply(cursor -> {
+            cursor.close();
+            updateCount = writesExecuted(cursor.getStats());
+            return updateCount;
+        });
+        pendingQuery = result;
+        return result;
+    }
+
+    static int writesExecuted(CursorStats stats) {
+        Long writes = stats != null ? stats.getWritesExecuted() : null;
+        return writes != null ? (int) Math.min(writes, Integer.MAX_VALUE) : 0;
+    }
+
+    /**
+     * Returns the number of batches a result set cursor fetches ahead of the caller: the
+     * prefetchBatches property (at least minimum), reduced so that no more than prefetchMaxRows
+     * rows are fetched ahead and nothing is fetched beyond maxRows.
+     */
+    protected int getPrefetchBatches(int minimum) {
+        int batchSize = getBatchSize();
+        int batches = Math.max(connection.getPrefetchBatches(), minimum);
+        batches = Math.min(batches, Math.max(minimum, connection.getPrefetchMaxRows() / batchSize));
+        if (maxRows > 0) {
+            batches = Math.min(batches, (maxRows - 1) / batchSize);
+        }
+        return batches;
+    }
+
+    /**
+     * Submits a query and waits for its first batch, without fetching ahead.
+     * @see #runQuery(String, Map, Class, AqlQueryOptions, int)
+     */
+    protected <T> ArangoCursor<T> runQuery(String aql, Map<String, Object> bindVars, Class<T> type, AqlQueryOptions options) throws SQLException {
+        return runQuery(aql, bindVars, type, options, 0);
+    }
+
+    /**
+     * Submits a query and waits for its first batch. The wait, and the waits for later batches,
+     * can be interrupted by cancel() from another thread or by the query timeout; either one
+     * also kills the query on the server. The cursor fetches up to prefetchBatches batches in
+     * the background ahead of the one being read.
+     */
+    protected <T> ArangoCursor<T> runQuery(String aql, Map<String, Object> bindVars, Class<T> type, AqlQueryOptions options,
+            int prefetchBatches) throws SQLException {
+        RunningQuery query = new RunningQuery(aql, bindVars);
+        runningQuery.set(query);
+        try {
+            CompletableFuture<ArangoCursorAsync<T>> request = sendQuery(aql, bindVars, type, options);
+            ArangoCursorAsync<T> batch = awaitQuery(query, request);
+            queryStarted(query, batch);
+            ArangoDbAsyncCursor<T> cursor = new ArangoDbAsyncCursor<>(this, query, batch, type, prefetchBatches);
+            lastQueryStats = cursor.getStats();
+            lastResultCached = cursor.isCached();
+            return cursor;
+        } catch (SQLException | RuntimeException e) {
+            queryFinished(query);
+            throw e;
+        } finally {
+            // Also after a failure, the query may have written before it failed
+            invalidateResultCache(aql, bindVars);
+        }
+    }
+
+    /**
+     * Submits a query without waiting for it and returns a blocking cursor over its result,
+     * which fetches up to prefetchBatches batches in the background ahead of the one being read.
+     * @see #submitQuery(String, Map, Class, AqlQueryOptions)
+     */
+    protected <T> CompletableFuture<ArangoDbAsyncCursor<T>> runQueryAsync(String aql, Map<String, Object> bindVars, Class<T> type,
+            AqlQueryOptions options, int prefetchBatches) {
+        RunningQuery query = new RunningQuery(aql, bindVars);
+        return submitQuery(query, type, options).thenApply(batch -> new ArangoDbAsyncCursor<>(this, query, batch, type, prefetchBatches));
+    }
+
+    /**
+     * Submits a query without waiting for it. The returned future completes on the common
+     * fork-join pool once the first batch has arrived, or with an SQLException; cancel() and the
+     * query timeout complete it early and kill the query on the server.
+     */
+    protected <T> CompletableFuture<ArangoCursorAsync<T>> submitQuery(String aql, Map<String, Object> bindVars, Class<T> type,
+            AqlQueryOptions options) {
+        return submitQuery(new RunningQuery(aql, bindVars), type, options);
+    }
+
+    private <T> CompletableFuture<ArangoCursorAsync<T>> submitQuery(RunningQuery query, Class<T> type, AqlQueryOptions options) {
+        String aql = query.aql;
+        Map<String, Object> bindVars = query.bindVars;
+        runningQuery.set(query);
+        CompletableFuture<ArangoCursorAsync<T>> request;
+        try {
+            request = sendQuery(aql, bindVars, type, options);
+        } catch (RuntimeException e) {
+            queryFinished(query);
+            return CompletableFuture.failedFuture(new SQLException("Query failed: " + e.getMessage(), e));
+        }
+        CompletableFuture<ArangoCursorAsync<T>> waiter = waitFor(request);
+        query.waiter = waiter;
+        int timeout = queryTimeout;
+        if (timeout > 0) {
+            waiter.orTimeout(timeout, TimeUnit.SECONDS);
+        }
+        return waiter.handleAsync((batch, failure) -> {
+            query.waiter = null;
+            // Also after a failure, the query may have written before it failed
+            invalidateResultCache(aql, bindVars);
+            if (failure != null) {
+                queryFinished(query);
+                throw new CompletionException(asyncFailure(failure, query, timeout));
+            }
+            queryStarted(query, batch);
+            lastQueryStats = batch.getExtra() != null ? batch.getExtra().getStats() : null;
+            lastResultCached = Boolean.TRUE.equals(batch.isCached());
+            return batch;
+        });
+    }
+
+    /**
+     * Sends a query to the server. With a batch decoder, documents (read as maps or BaseDocument)
+     * are received undecoded and decoded on the decoder's worker threads.
+     */
+    <T> CompletableFuture<ArangoCursorAsync<T>> sendQuery(String aql, Map<String, Object> bindVars, Class<T> type, AqlQueryOptions options) {
+        ArangoDbBatchDecoder decoder = connection.getBatchDecoder();
+        if (decoder != null && (type == BaseDocument.class || type == Map.class)) {
+            return connection.getAsyncDatabase().query(aql, RawBytes.class, bindVars, options).thenCompose(batch -> decoder.decode(batch, type));
+        }
+        return connection.getAsyncDatabase().query(aql, type, bindVars, options);
+    }
+
+    /**
+     * Turns the failure of an asynchronous request into the SQLException the blocking methods throw.
+     */
+    private SQLException asyncFailure(Throwable failure, RunningQuery query, int timeout) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof CancellationException) {
+            return new SQLException("Query was cancelled", SQL_STATE_QUERY_CANCELLED);
+        } else if (cause instanceof TimeoutException) {
+            killQuery(query);
+            return new SQLTimeoutException("Query did not complete within " + timeout + " seconds");
+        } else if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        }
+        return new SQLException("Query failed: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Returns the execution statistics the server reported for the last query of this statement
+     * (execution time, documents scanned and written, ...), or null if none were reported.
+     * For streaming queries the statistics only cover the work done for the first batch.
+     */
+    public CursorStats getLastQueryStats() {
+        return lastQueryStats;
+    }
+
+    /**
+     * Tells whether the result of the last query was served from the server's query result cache.
+     */
+    public boolean isLastResultCached() {
+        return lastResultCached;
+    }
+
+    /**
+     * Records the first batch of a query: a query whose cursor holds more batches keeps running
+     * until the cursor is exhausted or closed, the others are finished.
+     */
+    private void queryStarted(RunningQuery query, ArangoCursorAsync<?> batch) {
+        if (batch != null && batch.getId() != null && Boolean.TRUE.equals(batch.hasMore())) {
+            query.cursor = batch;
+        } else {
+            queryFinished(query);
+        }
+    }
+
+    /**
+     * Called once a query has no more batches to wait for; cancel() no longer affects it.
+     */
+    void queryFinished(RunningQuery query) {
+        query.cursor = null;
+        runningQuery.compareAndSet(query, null);
+    }
+
+    /**
+     * Waits for a server request of the query, honouring cancel() and the query timeout.
+     */
+    <R> R awaitQuery(RunningQuery query, CompletableFuture<R> request) throws SQLException {
+        CompletableFuture<R> waiter = waitFor(request);
+        query.waiter = waiter;
+        if (query.cancelled) {
+            waiter.cancel(false);
+        }
+        try {
+            if (queryTimeout > 0) {
+                return waiter.get(queryTimeout, TimeUnit.SECONDS);
+            }
+            return waiter.get();
+        } catch (CancellationException e) {
+            throw new SQLException("Query was cancelled", SQL_STATE_QUERY_CANCELLED);
+        } catch (TimeoutException e) {
+            waiter.cancel(false);
+            killQuery(query);
+            throw new SQLTimeoutException("Query did not complete within " + queryTimeout + " seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            waiter.cancel(false);
+            killQuery(query);
+            throw new SQLException("Interrupted while waiting for the query", SQL_STATE_QUERY_CANCELLED, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // Server errors propagate as before, callers add the statement context
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Query failed: " + cause.getMessage(), cause);
+        } finally {
+            query.waiter = null;
+        }
+    }
+
+    /**
+     * Returns a future for the request that can be given up (cancelled or timed out) without
+     * affecting the request itself. A cursor that arrives after it was given up is deleted right away.
+     */
+    private static <R> CompletableFuture<R> waitFor(CompletableFuture<R> request) {
+        CompletableFuture<R> waiter = request.thenApply(Function.identity());
+        request.thenAccept(result -> {
+            if (waiter.isCompletedExceptionally() && result instanceof ArangoCursorAsync) {
+                ArangoCursorAsync<?> cursor = (ArangoCursorAsync<?>) result;
+                if (Boolean.TRUE.equals(cursor.hasMore())) {
+                    cursor.close();
+                }
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * Kills the query on the server while this statement is waiting for it. Once its cursor is
+     * known the query is stopped by deleting the cursor. Before that its id is not known, and
+     * queries are not tagged since a marker would defeat the server's plan and result caches;
+     * instead the running queries list is searched for the same query string and bind
+     * parameters, started no earlier than this statement sent it. A collection scan kills the
+     * query of every partition still running.
+     */
+    private void killQuery(RunningQuery query) {
+        if (query.partitions != null) {
+            for (RunningQuery partition : query.partitions) {
+                killQuery(partition);
+            }
+            return;
+        }
+        ArangoCursorAsync<?> cursor = query.cursor;
+        if (cursor != null) {
+            LOGGER.debug("killQuery() - deleting cursor {}", cursor.getId());
+            ArangoDbAsyncCursor.deleteCursor(cursor);
+            return;
+        }
+        double elapsed = (System.nanoTime() - query.submittedNanos) / 1e9;
+        try {
+            ArangoDatabase database = connection.getDatabase();
+            QueryEntity match = null;
+            double matchRunTime = 0;
+            for (QueryEntity running : database.getCurrentlyRunningQueries()) {
+                if (!query.aql.equals(running.getQuery()) || !sameBindVars(query.bindVars, running.getBindVars())) {
+                    continue;
+                }
+                double runTime = running.getRunTime() != null ? running.getRunTime() : 0;
+                if (runTime > elapsed + RUNNING_QUERY_MATCH_SLACK) {
+                    continue;
+                }
+                // Of identical queries, the one started closest to our submission is ours
+                if (match == null || runTime > matchRunTime) {
+                    match = running;
+                    matchRunTime = runTime;
+                }
+            }
+            if (match == null) {
+                LOGGER.debug("killQuery() - query is no longer running");
+                return;
+            }
+            LOGGER.debug("killQuery() - killing query {}", match.getId());
+            database.killQuery(match.getId());
+        } catch (ArangoDBException e) {
+            LOGGER.warn("Failed to kill query on the server: {}", e.getMessage());
+        }
+    }
+
+    private static boolean sameBindVars(Map<String, Object> sent, Map<String, Object> running) {
+        Map<String, Object> expected = sent != null ? sent : Collections.emptyMap();
+        Map<String, Object> actual = running != null ? running : Collections.emptyMap();
+        if (!expected.keySet().equals(actual.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            Object value = entry.getValue();
+            Object other = actual.get(entry.getKey());
+            // Numbers come back from the server with whatever type the deserializer picked
+            if (value instanceof Number && other instanceof Number) {
+                if (((Number) value).doubleValue() != ((Number) other).doubleValue()) {
+                    return false;
+                }
+            } else if (!Objects.equals(String.valueOf(value), String.valueOf(other))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A query of this statement, from its submission until its cursor is exhausted or closed.
+     */
+    static final class RunningQuery {
+        final String aql;
+        final Map<String, Object> bindVars;
+        final long submittedNanos = System.nanoTime();
+        volatile boolean cancelled = false;
+        // Set while the statement waits for a response
+        volatile CompletableFuture<?> waiter;
+        // First batch of the server cursor while the cursor holds more batches
+        volatile ArangoCursorAsync<?> cursor;
+        // Queries of the partitions of a collection scan still running, null for other queries
+        final List<RunningQuery> partitions;
+
+        RunningQuery(String aql, Map<String, Object> bindVars) {
+            this(aql, bindVars, null);
+        }
+
+        private RunningQuery(String aql, Map<String, Object> bindVars, List<RunningQuery> partitions) {
+            this.aql = aql;
+            // Bind parameters may be changed by the caller while the query runs
+            this.bindVars = bindVars != null ? new HashMap<>(bindVars) : null;
+            this.partitions = partitions;
+        }
+
+        /**
+         * Returns the query of a collection scan, which runs one query per partition.
+         */
+        static RunningQuery scan() {
+            return new RunningQuery(null, null, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    /**
+     * Called by result sets of this statement when they are created.
+     */
+    void resultSetOpened(ResultSet resultSet) {
+        openResultSets.add(resultSet);
+        if (resultSet instanceof ArangoDbCursorResultSet) {
+            connection.cursorOpened();
+        }
+    }
+
+    /**
+     * Called by result sets of this statement when they are closed.
+     */
+    void resultSetClosed(ResultSet resultSet) throws SQLException {
+        if (!openResultSets.remove(resultSet)) {
+            return;
+        }
+        if (resultSet instanceof ArangoDbCursorResultSet) {
+            connection.cursorClosed();
+        }
+        if (closeOnCompletion && openResultSets.isEmpty()) {
+            close();
+        }
+    }
+
+    /**
+     * Closes a statement that the application left open when its connection is closed,
+     * reporting cursors that were never closed.
+     */
+    void closeAbandoned() throws SQLException {
+        for (ResultSet resultSet : openResultSets) {
+            if (resultSet instanceof ArangoDbCursorResultSet) {
+                ((ArangoDbCursorResultSet<?>) resultSet).reportLeak();
+            }
+        }
+        close();
+    }
+
+    /**
+     * Sets the connection returned by {@link #getConnection()}, used by pooled connection handles.
+     */
+    void setLogicalConnection(Connection logicalConnection) {
+        this.logicalConnection = logicalConnection;
+    }
+
+    /**
+     * Marks a statement taken from a statement cache as open again, with the settings of a
+     * new statement so that nothing set by the previous borrower carries over.
+     */
+    void reopen() {
+        closed = false;
+        maxRows = 0;
+        fetchSize = 0;
+        queryTimeout = 0;
+        closeOnCompletion = false;
+        poolable = false;
+        exportMode = connection.isExportMode();
+        connection.statementOpened(this);
+    }
+
     protected void checkClosed() throws SQLException {
         if (closed) {
             throw new SQLException("Statement is closed");
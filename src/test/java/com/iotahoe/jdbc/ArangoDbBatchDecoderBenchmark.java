@@ -0,0 +1,91 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.util.RawBytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Time to decode a cursor batch of JSON documents on the decoder threads, against decoding it
+ * row by row on the calling thread as the driver does without decoderThreads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArangoDbBatchDecoderBenchmark {
+    private static final int ROWS = 5000;
+
+    @Param({"1", "2", "4"})
+    private int threads;
+
+    @Param({"10", "50"})
+    private int attributes;
+
+    private ArangoDbBatchDecoder decoder;
+    private ArangoCursorAsync<RawBytes> batch;
+    private List<RawBytes> rows;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            StringBuilder json = new StringBuilder("{\"_key\":\"").append(i).append('"');
+            for (int a = 0; a < attributes; a++) {
+                json.append(",\"attribute").append(a).append("\":");
+                if (a % 2 == 0) {
+                    json.append(i * 31L + a);
+                } else {
+                    json.append("\"value ").append(i).append('-').append(a).append('"');
+                }
+            }
+            rows.add(RawBytes.of(json.append('}').toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        batch = mock(ArangoCursorAsync.class);
+        when(batch.getResult()).thenReturn(rows);
+        when(batch.hasMore()).thenReturn(false);
+        decoder = new ArangoDbBatchDecoder(null, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        decoder.close();
+    }
+
+    @Benchmark
+    public List<?> decodeOnWorkers() {
+        return decoder.decode(batch, Map.class).join().getResult();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> decodeOnCaller() throws SQLException {
+        List<Map<String, Object>> documents = new ArrayList<>(rows.size());
+        for (RawBytes row : rows) {
+            documents.add(ArangoDbRowDecoder.decodeDocument(row.get(), null));
+        }
+        return documents;
+    }
+}
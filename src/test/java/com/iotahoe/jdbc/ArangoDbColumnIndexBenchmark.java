@@ -0,0 +1,86 @@
+package com.iotahoe.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to resolve the labels of a row, each column once, through the column index against the
+ * linear scan of the column names the result sets used before. The labels are distinct string
+ * instances from the column names, as with labels written in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArangoDbColumnIndexBenchmark {
+
+    @Param({"5", "20", "100"})
+    private int columns;
+
+    private String[] columnNames;
+    private String[] labels;
+    private ArangoDbColumnIndex index;
+
+    @Setup
+    public void setUp() {
+        columnNames = new String[columns];
+        labels = new String[columns];
+        for (int i = 0; i < columns; i++) {
+            columnNames[i] = "attribute" + i;
+            labels[i] = new String(columnNames[i]);
+        }
+        index = new ArangoDbColumnIndex(columnNames, false);
+    }
+
+    @Benchmark
+    public int indexLookup() throws SQLException {
+        int sum = 0;
+        for (String label : labels) {
+            sum += index.findColumn(label);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int linearScan() throws SQLException {
+        int sum = 0;
+        for (String label : labels) {
+            sum += scan(label);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int sameLabel() throws SQLException {
+        // Getters of the same column following each other hit the last label remembered
+        String label = labels[labels.length - 1];
+        int sum = 0;
+        for (int i = 0; i < labels.length; i++) {
+            sum += index.findColumn(label);
+        }
+        return sum;
+    }
+
+    private int scan(String label) throws SQLException {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equals(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Column not found: " + label);
+    }
+}
@@ -0,0 +1,43 @@
+package com.iotahoe.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class ArangoDbColumnIndexTest {
+    private static final String[] COLUMNS = {"_key", "name", "Name", "age", "name"};
+
+    @Test
+    void findsColumnsByExactLabel() throws SQLException {
+        ArangoDbColumnIndex index = new ArangoDbColumnIndex(COLUMNS, false);
+        assertEquals(1, index.findColumn("_key"));
+        // The first of duplicate labels wins
+        assertEquals(2, index.findColumn("name"));
+        assertEquals(3, index.findColumn("Name"));
+        assertEquals(4, index.findColumn("age"));
+        assertEquals(4, index.findColumn("age"));
+        assertThrows(SQLException.class, () -> index.findColumn("AGE"));
+        assertThrows(SQLException.class, () -> index.findColumn(null));
+    }
+
+    @Test
+    void fallsBackToCaseInsensitiveLabels() throws SQLException {
+        ArangoDbColumnIndex index = new ArangoDbColumnIndex(COLUMNS, true);
+        assertEquals(4, index.findColumn("AGE"));
+        // Exact matches are preferred over case-insensitive ones
+        assertEquals(3, index.findColumn("Name"));
+        assertEquals(2, index.findColumn("NAME"));
+        assertThrows(SQLException.class, () -> index.findColumn("missing"));
+    }
+
+    @Test
+    void isCaseSensitiveForOtherStatements() {
+        ArangoDbColumnIndex index = ArangoDbColumnIndex.of(mock(Statement.class), COLUMNS);
+        assertThrows(SQLException.class, () -> index.findColumn("AGE"));
+    }
+}
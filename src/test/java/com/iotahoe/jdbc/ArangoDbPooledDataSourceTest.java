@@ -0,0 +1,117 @@
+package com.iotahoe.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.PooledConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArangoDbPooledDataSourceTest {
+
+    /**
+     * Pool over mocked physical connections.
+     */
+    private static final class TestDataSource extends ArangoDbPooledDataSource {
+        final List<ArangoDbConnection> physicalConnections = new ArrayList<>();
+
+        @Override
+        public PooledConnection getPooledConnection() throws SQLException {
+            ArangoDbConnection connection = mock(ArangoDbConnection.class);
+            when(connection.prepareStatement(anyString()))
+                    .thenAnswer(invocation -> new ArangoDbPreparedStatement(connection, invocation.getArgument(0)));
+            physicalConnections.add(connection);
+            return new ArangoDbPooledConnection(connection, 4);
+        }
+    }
+
+    @Test
+    void reusesReturnedConnections() throws SQLException {
+        TestDataSource dataSource = new TestDataSource();
+        Connection first = dataSource.getConnection();
+        first.close();
+        assertEquals(1, dataSource.getIdleCount());
+        Connection second = dataSource.getConnection();
+        assertEquals(0, dataSource.getIdleCount());
+        assertNotSame(first, second);
+        assertEquals(1, dataSource.physicalConnections.size());
+        // Closing a handle resets the physical connection instead of closing it
+        verify(dataSource.physicalConnections.get(0)).resetState();
+        verify(dataSource.physicalConnections.get(0), never()).close();
+        assertTrue(first.isClosed());
+        assertFalse(second.isClosed());
+        second.close();
+        dataSource.close();
+    }
+
+    @Test
+    void closesConnectionsBeyondMaxIdle() throws SQLException {
+        TestDataSource dataSource = new TestDataSource();
+        dataSource.setMaxIdle(1);
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        first.close();
+        second.close();
+        assertEquals(1, dataSource.getIdleCount());
+        verify(dataSource.physicalConnections.get(0), never()).close();
+        verify(dataSource.physicalConnections.get(1)).close();
+        dataSource.close();
+    }
+
+    @Test
+    void closesConnectionsReturnedAfterClose() throws SQLException {
+        TestDataSource dataSource = new TestDataSource();
+        Connection idle = dataSource.getConnection();
+        Connection busy = dataSource.getConnection();
+        idle.close();
+        dataSource.close();
+        assertEquals(0, dataSource.getIdleCount());
+        verify(dataSource.physicalConnections.get(0)).close();
+        busy.close();
+        assertEquals(0, dataSource.getIdleCount());
+        verify(dataSource.physicalConnections.get(1)).close();
+        assertThrows(SQLException.class, dataSource::getConnection);
+    }
+
+    @Test
+    void resetsCachedStatements() throws SQLException {
+        TestDataSource dataSource = new TestDataSource();
+        Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement("FOR d IN c RETURN d");
+        statement.setMaxRows(5);
+        statement.setFetchSize(50);
+        statement.setQueryTimeout(3);
+        statement.closeOnCompletion();
+        statement.close();
+        assertTrue(statement.isClosed());
+        connection.close();
+
+        connection = dataSource.getConnection();
+        PreparedStatement reused = connection.prepareStatement("FOR d IN c RETURN d");
+        assertSame(statement, reused);
+        assertFalse(reused.isClosed());
+        assertSame(connection, reused.getConnection());
+        assertEquals(0, reused.getMaxRows());
+        assertEquals(0, reused.getFetchSize());
+        assertEquals(0, reused.getQueryTimeout());
+        assertFalse(reused.isCloseOnCompletion());
+        assertTrue(reused.isPoolable());
+        assertNotSame(statement, connection.prepareStatement("FOR d IN other RETURN d"));
+        connection.close();
+        dataSource.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.ArangoDatabaseAsync;
+import com.arangodb.entity.CursorEntity;
+import com.arangodb.entity.CursorStats;
+import com.arangodb.model.AqlQueryOptions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArangoDbPreparedStatementTest {
+
+    private final ArangoDbConnection connection = mock(ArangoDbConnection.class);
+    private final ArangoDatabaseAsync database = mock(ArangoDatabaseAsync.class);
+
+    ArangoDbPreparedStatementTest() {
+        when(connection.getAsyncDatabase()).thenReturn(database);
+        when(connection.getBatchChunkSize()).thenReturn(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void respondWithWrites(long... writes) {
+        CompletableFuture<ArangoCursorAsync<Object>>[] responses = new CompletableFuture[writes.length];
+        for (int i = 0; i < writes.length; i++) {
+            CursorStats stats = mock(CursorStats.class);
+            when(stats.getWritesExecuted()).thenReturn(writes[i]);
+            CursorEntity.Extras extras = mock(CursorEntity.Extras.class);
+            when(extras.getStats()).thenReturn(stats);
+            ArangoCursorAsync<Object> cursor = mock(ArangoCursorAsync.class);
+            when(cursor.getResult()).thenReturn(Collections.emptyList());
+            when(cursor.hasMore()).thenReturn(false);
+            when(cursor.getExtra()).thenReturn(extras);
+            responses[i] = CompletableFuture.completedFuture(cursor);
+        }
+        when(database.query(anyString(), eq(Object.class), anyMap(), any(AqlQueryOptions.class)))
+                .thenReturn(responses[0], Arrays.copyOfRange(responses, 1, responses.length));
+    }
+
+    private void verifyQueries(ArgumentCaptor<String> aql, ArgumentCaptor<Map<String, Object>> bindVars, int times) {
+        verify(database, times(times)).query(aql.capture(), eq(Object.class), bindVars.capture(), any(AqlQueryOptions.class));
+    }
+
+    @Test
+    void runsEachChunkAsOneQuery() throws SQLException {
+        respondWithWrites(2, 1);
+        ArangoDbPreparedStatement statement = new ArangoDbPreparedStatement(connection,
+                "FOR u IN users FILTER u.id == ? UPDATE u WITH {status: ?} IN users");
+        statement.setInt(1, 1);
+        statement.setString(2, "a");
+        statement.addBatch();
+        statement.setInt(1, 2);
+        statement.setString(2, "a");
+        statement.addBatch();
+        statement.setInt(1, 3);
+        statement.setString(2, "b");
+        statement.addBatch();
+
+        int[] updateCounts = statement.executeBatch();
+        assertArrayEquals(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO}, updateCounts);
+        // Per parameter set counts are not known, the total is
+        assertEquals(3, statement.getUpdateCount());
+
+        ArgumentCaptor<String> aql = ArgumentCaptor.forClass(String.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> bindVars = ArgumentCaptor.forClass(Map.class);
+        verifyQueries(aql, bindVars, 2);
+        // Values shared by the rows of a chunk stay plain bind variables
+        assertEquals("FOR __jdbc_row IN @__jdbc_batch LET __jdbc_result = ("
+                + "FOR u IN users FILTER u.id == __jdbc_row.`p1` UPDATE u WITH {status: @p2} IN users) RETURN null", aql.getAllValues().get(0));
+        assertEquals("a", bindVars.getAllValues().get(0).get("p2"));
+        assertEquals(Arrays.asList(Collections.singletonMap("p1", 1), Collections.singletonMap("p1", 2)),
+                bindVars.getAllValues().get(0).get("__jdbc_batch"));
+        // A single row has no varying values
+        assertEquals("FOR __jdbc_row IN @__jdbc_batch LET __jdbc_result = ("
+                + "FOR u IN users FILTER u.id == @p1 UPDATE u WITH {status: @p2} IN users) RETURN null", aql.getAllValues().get(1));
+        assertEquals(3, bindVars.getAllValues().get(1).get("p1"));
+        assertEquals(Collections.singletonList(Collections.emptyMap()), bindVars.getAllValues().get(1).get("__jdbc_batch"));
+    }
+
+    @Test
+    void keepsWithClauseInFront() throws SQLException {
+        respondWithWrites(1);
+        ArangoDbPreparedStatement statement = new ArangoDbPreparedStatement(connection,
+                "WITH users INSERT {id: ?} INTO edges");
+        statement.setInt(1, 1);
+        statement.addBatch();
+        statement.setInt(1, 2);
+        statement.addBatch();
+        statement.executeBatch();
+
+        ArgumentCaptor<String> aql = ArgumentCaptor.forClass(String.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> bindVars = ArgumentCaptor.forClass(Map.class);
+        verifyQueries(aql, bindVars, 1);
+        assertEquals("WITH users FOR __jdbc_row IN @__jdbc_batch LET __jdbc_result = ("
+                + " INSERT {id: __jdbc_row.`p1`} INTO edges) RETURN null", aql.getValue());
+    }
+
+    @Test
+    void rejectsVaryingCollections() throws SQLException {
+        ArangoDbPreparedStatement statement = new ArangoDbPreparedStatement(connection,
+                "INSERT {id: 1} INTO @@collection");
+        statement.setString(1, "a");
+        statement.addBatch();
+        statement.setString(1, "b");
+        statement.addBatch();
+        BatchUpdateException e = assertThrows(BatchUpdateException.class, statement::executeBatch);
+        assertEquals(0, e.getUpdateCounts().length);
+        verify(database, never()).query(anyString(), eq(Object.class), anyMap(), any(AqlQueryOptions.class));
+    }
+}
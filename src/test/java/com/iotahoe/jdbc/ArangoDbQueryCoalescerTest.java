@@ -0,0 +1,176 @@
+package com.iotahoe.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArangoDbQueryCoalescerTest {
+    private static final ArangoDbResultCache.Key KEY =
+            new ArangoDbResultCache.Key("db", "FOR d IN c RETURN d", Collections.singletonMap("x", 1));
+
+    private static ArangoDbQueryCoalescer.Result result() {
+        return new ArangoDbQueryCoalescer.Result(new String[]{"a"}, new int[]{Types.INTEGER},
+                Collections.singletonList(new Object[]{1}));
+    }
+
+    private static void await(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted", e);
+        }
+    }
+
+    /**
+     * Starts a caller that does not load the result itself, and waits until it waits for the running query.
+     */
+    private static Future<ArangoDbQueryCoalescer.Result> startWaiting(ExecutorService executor, ArangoDbQueryCoalescer coalescer,
+            ArangoDbQueryCoalescer.Loader loader) throws InterruptedException {
+        CompletableFuture<Thread> caller = new CompletableFuture<>();
+        Future<ArangoDbQueryCoalescer.Result> future = executor.submit(() -> {
+            caller.complete(Thread.currentThread());
+            return coalescer.execute(KEY, 0, loader);
+        });
+        Thread thread = caller.join();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "Caller did not wait for the running query");
+            Thread.sleep(5);
+        }
+        return future;
+    }
+
+    /**
+     * Starts a caller whose loader blocks until released, and waits until it is loading.
+     */
+    private static Future<ArangoDbQueryCoalescer.Result> startLoading(ExecutorService executor, ArangoDbQueryCoalescer coalescer,
+            CountDownLatch release, ArangoDbQueryCoalescer.Result result) throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        Future<ArangoDbQueryCoalescer.Result> future = executor.submit(() -> coalescer.execute(KEY, 0, () -> {
+            loading.countDown();
+            await(release);
+            return result;
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    @Test
+    void sharesTheResultOfTheRunningQuery() throws Exception {
+        ArangoDbQueryCoalescer coalescer = new ArangoDbQueryCoalescer(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            ArangoDbQueryCoalescer.Result shared = result();
+            Future<ArangoDbQueryCoalescer.Result> leader = startLoading(executor, coalescer, release, shared);
+            AtomicInteger loads = new AtomicInteger();
+            List<Future<ArangoDbQueryCoalescer.Result>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(startWaiting(executor, coalescer, () -> {
+                    loads.incrementAndGet();
+                    return result();
+                }));
+            }
+            assertEquals(1, coalescer.getInFlightCount());
+            release.countDown();
+
+            assertSame(shared, leader.get(5, TimeUnit.SECONDS));
+            for (Future<ArangoDbQueryCoalescer.Result> follower : followers) {
+                assertSame(shared, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(0, loads.get());
+            assertEquals(1, coalescer.getExecutionCount());
+            assertEquals(3, coalescer.getCoalescedCount());
+            assertEquals(0, coalescer.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsNothingOnceTheQueryCompleted() throws SQLException {
+        ArangoDbQueryCoalescer coalescer = new ArangoDbQueryCoalescer(1000);
+        ArangoDbQueryCoalescer.Result first = result();
+        ArangoDbQueryCoalescer.Result second = result();
+        assertSame(first, coalescer.execute(KEY, 0, () -> first));
+        assertSame(second, coalescer.execute(KEY, 0, () -> second));
+        assertEquals(2, coalescer.getExecutionCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    void waitersLoadResultsTooLargeToShare() throws Exception {
+        ArangoDbQueryCoalescer coalescer = new ArangoDbQueryCoalescer(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            Future<ArangoDbQueryCoalescer.Result> leader = startLoading(executor, coalescer, release, null);
+            ArangoDbQueryCoalescer.Result own = result();
+            Future<ArangoDbQueryCoalescer.Result> follower = startWaiting(executor, coalescer, () -> own);
+            release.countDown();
+            assertNull(leader.get(5, TimeUnit.SECONDS));
+            assertSame(own, follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersRetryAfterAFailure() throws Exception {
+        ArangoDbQueryCoalescer coalescer = new ArangoDbQueryCoalescer(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> leader = executor.submit(() -> coalescer.execute(KEY, 0, () -> {
+                loading.countDown();
+                await(release);
+                throw new SQLException("Query was cancelled");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            ArangoDbQueryCoalescer.Result own = result();
+            Future<ArangoDbQueryCoalescer.Result> follower = startWaiting(executor, coalescer, () -> own);
+            release.countDown();
+            Exception e = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof SQLException);
+            assertSame(own, follower.get(5, TimeUnit.SECONDS));
+            assertEquals(2, coalescer.getExecutionCount());
+            assertEquals(0, coalescer.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersGiveUpAfterTheTimeout() throws Exception {
+        ArangoDbQueryCoalescer coalescer = new ArangoDbQueryCoalescer(1000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            startLoading(executor, coalescer, release, result());
+            assertThrows(SQLTimeoutException.class, () -> coalescer.execute(KEY, 1, ArangoDbQueryCoalescerTest::result));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.iotahoe.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArangoDbQueryTemplateTest {
+
+    @Test
+    void rewritesPlaceholdersInOperandPosition() {
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse(
+                "FOR d IN c FILTER d.a == ? AND d.b IN [?, ?] LIMIT ?, ? RETURN d");
+        assertEquals("FOR d IN c FILTER d.a == @p1 AND d.b IN [@p2, @p3] LIMIT @p4, @p5 RETURN d", template.getQuery());
+        assertEquals(5, template.getJdbcParameterCount());
+    }
+
+    @Test
+    void keepsTernaryOperator() {
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse(
+                "FOR d IN c RETURN d.age > ? ? 'adult' : 'minor'");
+        assertEquals("FOR d IN c RETURN d.age > @p1 ? 'adult' : 'minor'", template.getQuery());
+
+        template = ArangoDbQueryTemplate.parse("RETURN (? == 1) ? x[?] : LENGTH(?) ?: 0");
+        assertEquals("RETURN (@p1 == 1) ? x[@p2] : LENGTH(@p3) ?: 0", template.getQuery());
+
+        template = ArangoDbQueryTemplate.parse("FOR d IN c RETURN d.update ? 1 : 2");
+        assertEquals(0, template.getJdbcParameterCount());
+    }
+
+    @Test
+    void ignoresQuestionMarksInStringsAndComments() {
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse(
+                "FOR d IN c // why?\n FILTER d.a == 'a?' /* ? */ AND d.b == \"?\" AND d.`x?` == ? RETURN d");
+        assertEquals(1, template.getJdbcParameterCount());
+        assertEquals("FOR d IN c FILTER d.a == 'a?' AND d.b == \"?\" AND d.`x?` == @p1 RETURN d",
+                template.getNormalizedQuery());
+    }
+
+    @Test
+    void keepsArrayFilters() {
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse(
+                "FOR d IN c FILTER d.tags[? ANY FILTER CURRENT == ?] AND d.n[? 2 FILTER CURRENT > 0] RETURN d");
+        assertEquals("FOR d IN c FILTER d.tags[? ANY FILTER CURRENT == @p1] AND d.n[? 2 FILTER CURRENT > 0] RETURN d",
+                template.getQuery());
+        assertEquals(1, template.getJdbcParameterCount());
+    }
+
+    @Test
+    void keepsQuestionMarksWithNamedParameters() {
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse("RETURN @a == ? 1 : 2");
+        assertEquals("RETURN @a == ? 1 : 2", template.getQuery());
+    }
+
+    @Test
+    void recordsCollections() {
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse(
+                "WITH users, groups FOR d IN orders FILTER d.n > LENGTH(items) RETURN MERGE(d, {n: COUNT(d.x)})");
+        assertEquals(new HashSet<>(Arrays.asList("users", "groups", "orders", "items", "d")),
+                template.getCollections(Collections.emptyMap()));
+
+        template = ArangoDbQueryTemplate.parse("FOR d IN @@c RETURN d");
+        assertEquals(Collections.singleton("orders"), template.getCollections(Collections.singletonMap("@c", "orders")));
+        assertNull(template.getCollections(Collections.emptyMap()));
+    }
+
+    @Test
+    void detectsWrites() {
+        assertTrue(ArangoDbQueryTemplate.parse("FOR d IN c UPDATE d WITH {a: 1} IN c").isWrite());
+        assertTrue(ArangoDbQueryTemplate.parse("INSERT {a: 1} INTO c").isWrite());
+        assertFalse(ArangoDbQueryTemplate.parse("FOR d IN c RETURN d.update").isWrite());
+        assertFalse(ArangoDbQueryTemplate.parse("FOR d IN c RETURN {remove: d.a, `insert`: 1}").isWrite());
+        assertFalse(ArangoDbQueryTemplate.parse("FOR d IN c RETURN d.a // UPDATE").isWrite());
+        assertFalse(ArangoDbQueryTemplate.parse("FOR d IN c RETURN 'REMOVE'").isWrite());
+    }
+
+    @Test
+    void detectsIndirectCollections() {
+        assertNull(ArangoDbQueryTemplate.parse("FOR v IN 1..2 ANY 'users/1' knows RETURN v").getCollections(null));
+        assertNull(ArangoDbQueryTemplate.parse("FOR v IN OUTBOUND @start GRAPH 'g' RETURN v").getCollections(null));
+        assertNull(ArangoDbQueryTemplate.parse("RETURN COLLECTION_COUNT('orders')").getCollections(null));
+        assertNull(ArangoDbQueryTemplate.parse("RETURN DOCUMENT('orders/1')").getCollections(null));
+        assertEquals(Collections.singleton("c"), ArangoDbQueryTemplate.parse(
+                "FOR d IN c FILTER d.tags[? ANY FILTER CURRENT == 'x'] RETURN d").getCollections(null));
+        assertEquals(Collections.singleton("c"), ArangoDbQueryTemplate.parse(
+                "FOR d IN c FILTER d.tags ANY == 'x' AND d.ids ANY IN [1, 2] RETURN d.any").getCollections(null));
+    }
+
+    @Test
+    void detectsNondeterministicQueries() {
+        assertTrue(ArangoDbQueryTemplate.parse("FOR d IN c RETURN d").isCacheable());
+        assertFalse(ArangoDbQueryTemplate.parse("RETURN RAND()").isCacheable());
+        assertFalse(ArangoDbQueryTemplate.parse("RETURN MY::FN(1)").isCacheable());
+        assertTrue(ArangoDbQueryTemplate.parse("RETURN d.rand").isCacheable());
+    }
+
+    @Test
+    void locatesLeadingWithClause() {
+        String query = "WITH users, @@groups FOR v IN 1..2 OUTBOUND @start edges RETURN v";
+        ArangoDbQueryTemplate template = ArangoDbQueryTemplate.parse(query);
+        assertEquals("WITH users, @@groups", query.substring(0, template.getWithClauseEnd()));
+
+        query = "/* graph */ WITH `users` FOR v IN 1..2 OUTBOUND @start edges RETURN v";
+        template = ArangoDbQueryTemplate.parse(query);
+        assertEquals("/* graph */ WITH `users`", query.substring(0, template.getWithClauseEnd()));
+
+        assertEquals(0, ArangoDbQueryTemplate.parse("FOR d IN c UPDATE d WITH {a: 1} IN c").getWithClauseEnd());
+    }
+}
@@ -0,0 +1,129 @@
+package com.iotahoe.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ArangoDbResultCacheTest {
+    private static final String[] COLUMNS = {"a"};
+    private static final int[] TYPES = {Types.INTEGER};
+
+    private static ArangoDbResultCache.Key key(String query) {
+        return new ArangoDbResultCache.Key("db", query, Collections.singletonMap("x", 1));
+    }
+
+    private static List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1});
+        return rows;
+    }
+
+    private static void put(ArangoDbResultCache cache, String query, Set<String> collections, long bytes) {
+        cache.put(key(query), COLUMNS, TYPES, rows(), collections, bytes, cache.getGeneration());
+    }
+
+    @Test
+    void servesStoredResults() {
+        ArangoDbResultCache cache = new ArangoDbResultCache(1000, 60000);
+        assertNull(cache.get(key("q")));
+        put(cache, "q", Collections.singleton("c"), 100);
+        ArangoDbResultCache.Entry entry = cache.get(key("q"));
+        assertNotNull(entry);
+        assertEquals(1, entry.rows.get(0)[0]);
+        assertNull(cache.get(new ArangoDbResultCache.Key("db", "q", Collections.singletonMap("x", 2))));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(100, cache.getSize());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        ArangoDbResultCache cache = new ArangoDbResultCache(1000, 60000);
+        put(cache, "q1", null, 250);
+        put(cache, "q2", null, 250);
+        put(cache, "q3", null, 250);
+        put(cache, "q4", null, 250);
+        // q1 becomes the most recently used, q2 is evicted by the next entry
+        assertNotNull(cache.get(key("q1")));
+        put(cache, "q5", null, 250);
+        assertNull(cache.get(key("q2")));
+        assertNotNull(cache.get(key("q1")));
+        assertNotNull(cache.get(key("q5")));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(1000, cache.getSize());
+    }
+
+    @Test
+    void skipsResultsLargerThanAnEntryMayBe() {
+        ArangoDbResultCache cache = new ArangoDbResultCache(1000, 60000);
+        assertEquals(250, cache.getMaxEntryBytes());
+        put(cache, "q", null, 251);
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void expiresEntries() {
+        ArangoDbResultCache cache = new ArangoDbResultCache(1000, 0);
+        put(cache, "q", null, 100);
+        assertNull(cache.get(key("q")));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void invalidatesEntriesOfWrittenCollections() {
+        ArangoDbResultCache cache = new ArangoDbResultCache(1000, 60000);
+        put(cache, "q1", Collections.singleton("c1"), 100);
+        put(cache, "q2", Collections.singleton("c2"), 100);
+        put(cache, "q3", null, 100);
+        cache.invalidate(Collections.singleton("c1"));
+        assertNull(cache.get(key("q1")));
+        assertNotNull(cache.get(key("q2")));
+        // Entries whose collections are unknown are dropped by every write
+        assertNull(cache.get(key("q3")));
+        cache.clear();
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void dropsResultsReadAcrossAnInvalidation() {
+        ArangoDbResultCache cache = new ArangoDbResultCache(1000, 60000);
+        long generation = cache.getGeneration();
+        cache.invalidate(Collections.singleton("other"));
+        cache.put(key("q"), COLUMNS, TYPES, rows(), Collections.singleton("c"), 100, generation);
+        assertNull(cache.get(key("q")));
+        cache.put(key("q"), COLUMNS, TYPES, rows(), Collections.singleton("c"), 100, cache.getGeneration());
+        assertNotNull(cache.get(key("q")));
+    }
+
+    @Test
+    void copiesBindValuesIntoKeys() {
+        List<Object> ids = new ArrayList<>(Arrays.asList(1, 2));
+        Map<String, Object> bindVars = new HashMap<>();
+        bindVars.put("ids", ids);
+        ArangoDbResultCache.Key key = new ArangoDbResultCache.Key("db", "q", bindVars);
+        int hash = key.hashCode();
+        ids.add(3);
+        bindVars.put("other", 1);
+        assertEquals(hash, key.hashCode());
+        assertEquals(key, new ArangoDbResultCache.Key("db", "q", Collections.singletonMap("ids", Arrays.asList(1, 2))));
+        assertNotEquals(key, new ArangoDbResultCache.Key("db", "q", Collections.singletonMap("ids", ids)));
+
+        // Arrays are compared by content
+        assertEquals(new ArangoDbResultCache.Key("db", "q", Collections.singletonMap("ids", new int[]{1, 2})),
+                new ArangoDbResultCache.Key("db", "q", Collections.singletonMap("ids", new Integer[]{1, 2})));
+        assertEquals(key, new ArangoDbResultCache.Key("db", "q", Collections.singletonMap("ids", new int[]{1, 2})));
+    }
+}
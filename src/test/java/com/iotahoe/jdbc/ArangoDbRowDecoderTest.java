@@ -0,0 +1,110 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.util.RawBytes;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArangoDbRowDecoderTest {
+
+    private static byte[] json(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void decodesRowsIntoSlots() throws SQLException {
+        ArangoDbRowDecoder decoder = new ArangoDbRowDecoder(null);
+        Object[] first = decoder.decode(RawBytes.of(json("{\"a\": 1, \"b\": \"x\"}")));
+        assertArrayEquals(new Object[]{1, "x"}, first);
+        Object[] second = decoder.decode(RawBytes.of(json("{\"c\": [1, {\"d\": null}], \"a\": 2.5}")));
+        assertArrayEquals(new Object[]{2.5, null, Arrays.asList(1, Collections.singletonMap("d", null))}, second);
+        assertEquals(3, decoder.getColumnCount());
+        assertEquals("c", decoder.getColumnName(2));
+        assertEquals(1, decoder.getSlot("b"));
+        assertEquals(-1, decoder.getSlot("z"));
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("b", "y");
+        map.put("e", true);
+        assertArrayEquals(new Object[]{null, "y", null, true}, decoder.decode(map));
+        assertArrayEquals(new Object[]{null, "z", null, null}, decoder.decode(new BaseDocument(Collections.singletonMap("b", "z"))));
+        assertThrows(SQLException.class, () -> decoder.decode("text"));
+        // Other JSON values can only be decoded with a serde
+        assertThrows(SQLException.class, () -> decoder.decode(RawBytes.of(json("[1]"))));
+    }
+
+    @Test
+    void locatesAndDecodesSingleValues() throws SQLException {
+        ArangoDbRowDecoder decoder = new ArangoDbRowDecoder(null);
+        decoder.decode(RawBytes.of(json("{\"a\": 0, \"b\": 0, \"c\": 0, \"d\": 0}")));
+        byte[] row = json("{\"c\": {\"x\": [1, 2]}, \"skipped\": \"s\", \"a\": \"text\", \"b\": 12345678901}");
+        int[] starts = new int[4];
+        int[] ends = new int[4];
+        decoder.index(row, starts, ends);
+        assertEquals(-1, starts[3]);
+        assertEquals("text", decoder.decodeValue(row, starts[0], ends[0]));
+        // A number at the end of the document ends where the next token starts
+        assertEquals(12345678901L, decoder.decodeValue(row, starts[1], ends[1]));
+        assertEquals(Collections.singletonMap("x", Arrays.asList(1, 2)), decoder.decodeValue(row, starts[2], ends[2]));
+
+        // Slots beyond the arrays are not located
+        int[] shortStarts = new int[1];
+        decoder.index(row, shortStarts, new int[1]);
+        assertTrue(shortStarts[0] > 0);
+    }
+
+    @Test
+    void decodesIntoColumnBuilders() throws SQLException {
+        ArangoDbRowDecoder decoder = new ArangoDbRowDecoder(null);
+        decoder.decode(RawBytes.of(json("{\"n\": 1, \"d\": 1.5, \"s\": \"a\", \"o\": true}")));
+        ArangoDbColumnVector.Builder[] columns = ArangoDbColumnBatch.newBuilders(4);
+        decoder.decodeInto(json("{\"n\": 1, \"d\": 1.5, \"s\": \"a\", \"o\": true, \"extra\": 1}"), columns, 0);
+        decoder.decodeInto(json("{\"n\": 18446744073709551616, \"d\": 2, \"s\": null, \"o\": [1]}"), columns, 1);
+        decoder.decodeInto(json("{\"s\": \"a\"}"), columns, 2);
+
+        ArangoDbColumnVector n = columns[0].build(3);
+        assertEquals(ArangoDbColumnVector.Kind.OBJECT, n.getKind());
+        assertEquals(1, n.getObject(0));
+        assertEquals(new BigInteger("18446744073709551616"), n.getObject(1));
+        assertTrue(n.isNull(2));
+
+        ArangoDbColumnVector d = columns[1].build(3);
+        assertEquals(ArangoDbColumnVector.Kind.DOUBLE, d.getKind());
+        assertEquals(1.5, d.getDouble(0));
+        assertEquals(2.0, d.getDouble(1));
+
+        ArangoDbColumnVector s = columns[2].build(3);
+        assertEquals(ArangoDbColumnVector.Kind.STRING, s.getKind());
+        assertTrue(s.isNull(1));
+        assertEquals(s.getCodes()[0], s.getCodes()[2]);
+        assertArrayEquals(new String[]{"a"}, s.getDictionary());
+
+        ArangoDbColumnVector o = columns[3].build(3);
+        assertEquals(ArangoDbColumnVector.Kind.OBJECT, o.getKind());
+        assertEquals(Boolean.TRUE, o.getObject(0));
+        assertEquals(Collections.singletonList(1), o.getObject(1));
+    }
+
+    @Test
+    void decodesDocumentsWithoutDictionary() throws SQLException {
+        Map<String, Object> document = ArangoDbRowDecoder.decodeDocument(json(" {\"_key\": \"k\", \"n\": 1}"), null);
+        assertEquals("k", document.get("_key"));
+        assertEquals(1, document.get("n"));
+        assertTrue(ArangoDbRowDecoder.isJsonObject(json("\n {}")));
+        assertFalse(ArangoDbRowDecoder.isJsonObject(json("1")));
+        assertFalse(ArangoDbRowDecoder.isJsonObject(new byte[0]));
+    }
+}
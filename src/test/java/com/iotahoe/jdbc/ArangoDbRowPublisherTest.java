@@ -0,0 +1,187 @@
+package com.iotahoe.jdbc;
+
+import com.arangodb.ArangoCursorAsync;
+import com.arangodb.ArangoDatabaseAsync;
+import com.arangodb.entity.BaseDocument;
+import com.arangodb.model.AqlQueryOptions;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ArangoDbRowPublisherTest {
+
+    private final ArangoDbConnection connection = mock(ArangoDbConnection.class);
+    private final ArangoDatabaseAsync database = mock(ArangoDatabaseAsync.class);
+
+    ArangoDbRowPublisherTest() {
+        when(connection.getAsyncDatabase()).thenReturn(database);
+    }
+
+    /**
+     * Subscriber recording the signals it receives.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Map<String, Object>> {
+        final List<Object> rows = new CopyOnWriteArrayList<>();
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed = false;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Map<String, Object> row) {
+            rows.add(row.get("n"));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArangoCursorAsync<BaseDocument> batch(boolean hasMore, int... values) {
+        List<BaseDocument> documents = new ArrayList<>();
+        for (int value : values) {
+            BaseDocument document = new BaseDocument();
+            document.addAttribute("n", value);
+            documents.add(document);
+        }
+        ArangoCursorAsync<BaseDocument> batch = mock(ArangoCursorAsync.class);
+        when(batch.getId()).thenReturn("1");
+        when(batch.getResult()).thenReturn(documents);
+        when(batch.hasMore()).thenReturn(hasMore);
+        when(batch.close()).thenReturn(CompletableFuture.completedFuture(null));
+        return batch;
+    }
+
+    private void respond(ArangoCursorAsync<BaseDocument> first) {
+        when(database.query(anyString(), eq(BaseDocument.class), isNull(), any(AqlQueryOptions.class)))
+                .thenReturn(CompletableFuture.completedFuture(first));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void fetchesBatchesAsRequested() throws SQLException, InterruptedException {
+        ArangoCursorAsync<BaseDocument> first = batch(true, 1, 2, 3);
+        ArangoCursorAsync<BaseDocument> second = batch(false, 4, 5);
+        when(first.nextBatch()).thenReturn(CompletableFuture.completedFuture(second));
+        respond(first);
+        ArangoDbStatement statement = new ArangoDbStatement(connection);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        statement.publishQuery("FOR d IN c RETURN d").subscribe(subscriber);
+        // Nothing is sent before the first request
+        verify(database, never()).query(anyString(), eq(BaseDocument.class), isNull(), any(AqlQueryOptions.class));
+
+        subscriber.subscription.request(2);
+        await(() -> subscriber.rows.size() == 2);
+        // The rows left in the batch cover the demand
+        verify(first, never()).nextBatch();
+
+        subscriber.subscription.request(2);
+        await(() -> subscriber.rows.size() == 4);
+        verify(first).nextBatch();
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        await(() -> subscriber.completed);
+        assertEquals(List.of(1, 2, 3, 4, 5), subscriber.rows);
+        assertNull(subscriber.error);
+        // The server dropped the exhausted cursor by itself
+        verify(second, never()).close();
+    }
+
+    @Test
+    void stopsAtMaxRows() throws SQLException, InterruptedException {
+        ArangoCursorAsync<BaseDocument> first = batch(true, 1, 2, 3);
+        respond(first);
+        ArangoDbStatement statement = new ArangoDbStatement(connection);
+        statement.setMaxRows(2);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        statement.publishQuery("FOR d IN c RETURN d").subscribe(subscriber);
+        subscriber.subscription.request(10);
+        await(() -> subscriber.completed);
+        assertEquals(List.of(1, 2), subscriber.rows);
+        verify(first, never()).nextBatch();
+        verify(first).close();
+    }
+
+    @Test
+    void cancelsWhenSubscriberThrows() throws SQLException, InterruptedException {
+        ArangoCursorAsync<BaseDocument> first = batch(true, 1, 2, 3);
+        respond(first);
+        ArangoDbStatement statement = new ArangoDbStatement(connection);
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(Map<String, Object> row) {
+                super.onNext(row);
+                throw new IllegalStateException("failed");
+            }
+        };
+        statement.publishQuery("FOR d IN c RETURN d").subscribe(subscriber);
+        subscriber.subscription.request(10);
+        verify(first, timeout(5000)).close();
+        assertEquals(Collections.singletonList(1), subscriber.rows);
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+        verify(first, never()).nextBatch();
+        // The statement is free again
+        RecordingSubscriber next = new RecordingSubscriber();
+        statement.publishQuery("FOR d IN c RETURN d").subscribe(next);
+        next.subscription.request(1);
+        await(() -> next.rows.size() == 1);
+        assertNull(next.error);
+    }
+
+    @Test
+    void rejectsNonPositiveRequests() throws SQLException, InterruptedException {
+        ArangoDbStatement statement = new ArangoDbStatement(connection);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        statement.publishQuery("FOR d IN c RETURN d").subscribe(subscriber);
+        subscriber.subscription.request(0);
+        await(() -> subscriber.error != null);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        verify(database, never()).query(anyString(), eq(BaseDocument.class), isNull(), any(AqlQueryOptions.class));
+    }
+}